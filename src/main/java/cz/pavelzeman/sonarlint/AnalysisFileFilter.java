@@ -0,0 +1,186 @@
+package cz.pavelzeman.sonarlint;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.sonarlint.core.commons.api.SonarLanguage;
+
+/**
+ * Filter of files, which are not worth analyzing, because they are too large or minified/generated. Such files can take most of the analysis time and memory,
+ * while their issues are typically of no interest.
+ */
+public class AnalysisFileFilter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AnalysisFileFilter.class);
+
+  /** Number of bytes read from the beginning of each file to detect minified and generated files. */
+  private static final int SNIFF_SIZE = 16 * 1024;
+
+  /** Number of bytes from the beginning of the file searched for generated code markers. */
+  private static final int HEADER_SIZE = 1024;
+
+  /** Average line length, above which the file is considered minified. The same threshold is used by SonarJS. */
+  private static final int MINIFIED_AVERAGE_LINE_LENGTH = 200;
+
+  /** Markers typically present in the header comment of generated files. */
+  private static final List<String> GENERATED_MARKERS = List.of("@generated", "<auto-generated", "code generated by");
+
+  /** UTF-8 byte order mark decoded as ISO-8859-1. */
+  private static final String UTF_8_BOM = "\u00EF\u00BB\u00BF";
+
+  /** Prefixes of single-line comments. */
+  private static final List<String> LINE_COMMENT_PREFIXES = List.of("//", "#", "--");
+
+  /** Extensions (without the dot) of files, which can be analyzed. Only these files are checked for being minified or generated. */
+  private static final Set<String> ANALYZED_EXTENSIONS = Arrays.stream(SonarLanguage.values())
+      .flatMap(language -> Arrays.stream(language.getDefaultFileSuffixes()))
+      .map(suffix -> suffix.startsWith(".") ? suffix.substring(1) : suffix)
+      .collect(Collectors.toUnmodifiableSet());
+
+  private final Configuration configuration;
+
+  public AnalysisFileFilter(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Checks, whether given file should be skipped.
+   *
+   * @param path file to check
+   * @return Reason, why the file should be skipped, or null, if the file should be analyzed.
+   */
+  public SkipReason check(Path path) {
+    var extension = getExtension(path);
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var size = channel.size();
+      if (size > getMaxFileSize(extension) * 1024) {
+        return SkipReason.TOO_LARGE;
+      }
+      if (!configuration.skipGeneratedFiles() || size == 0 || !ANALYZED_EXTENSIONS.contains(extension)) {
+        return null;
+      }
+      if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".min." + extension)) {
+        return SkipReason.MINIFIED;
+      }
+      return sniff(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, SNIFF_SIZE)));
+    } catch (IOException e) {
+      logger.warn("Error when reading file {}, skipping it: {}", path, e.toString());
+      return SkipReason.UNREADABLE;
+    }
+  }
+
+  /**
+   * Gets extension of given file.
+   *
+   * @param path file path
+   * @return Lowercase extension without the dot, or empty string, if the file has no extension.
+   */
+  private static String getExtension(Path path) {
+    var fileName = path.getFileName().toString();
+    var extensionStart = fileName.lastIndexOf('.');
+    return extensionStart < 0 ? "" : fileName.substring(extensionStart + 1).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Gets maximum size of a file in kilobytes based on its extension.
+   *
+   * @param extension lowercase file extension
+   * @return Maximum file size in kilobytes.
+   */
+  private long getMaxFileSize(String extension) {
+    var limit = configuration.maxFileSizeByExtension().get(extension);
+    return limit == null ? configuration.maxFileSize() : limit;
+  }
+
+  /**
+   * Detects minified and generated files based on the beginning of the file.
+   *
+   * @param buffer beginning of the file
+   * @return Reason, why the file should be skipped, or null, if the file should be analyzed.
+   */
+  private SkipReason sniff(MappedByteBuffer buffer) {
+    var headerBytes = new byte[Math.min(buffer.limit(), HEADER_SIZE)];
+    buffer.get(0, headerBytes);
+    var header = new String(headerBytes, StandardCharsets.ISO_8859_1);
+    if (header.startsWith(UTF_8_BOM)) {
+      header = header.substring(UTF_8_BOM.length());
+    }
+    header = getHeaderComment(header).toLowerCase(Locale.ROOT);
+    for (var marker : GENERATED_MARKERS) {
+      if (header.contains(marker)) {
+        return SkipReason.GENERATED;
+      }
+    }
+
+    var lines = 1;
+    for (var i = 0; i < buffer.limit(); i++) {
+      if (buffer.get(i) == '\n') {
+        lines++;
+      }
+    }
+    return buffer.limit() / lines > MINIFIED_AVERAGE_LINE_LENGTH ? SkipReason.MINIFIED : null;
+  }
+
+  /**
+   * Extracts comments at the top of the file. Only blank lines, XML declaration and comments may precede them, so that markers mentioned later in the file (e.g.
+   * in documentation of a class) are not considered.
+   *
+   * @param header beginning of the file
+   * @return Comments at the top of the file.
+   */
+  private static String getHeaderComment(String header) {
+    var result = new StringBuilder();
+    String blockCommentEnd = null;
+    for (var line : header.lines().toList()) {
+      var trimmed = line.strip();
+      if (blockCommentEnd != null) {
+        result.append(trimmed).append('\n');
+        if (trimmed.contains(blockCommentEnd)) {
+          blockCommentEnd = null;
+        }
+      } else if (trimmed.startsWith("/*") || trimmed.startsWith("<!--")) {
+        result.append(trimmed).append('\n');
+        var end = trimmed.startsWith("/*") ? "*/" : "-->";
+        if (trimmed.indexOf(end, 2) < 0) {
+          blockCommentEnd = end;
+        }
+      } else if (LINE_COMMENT_PREFIXES.stream().anyMatch(trimmed::startsWith)) {
+        result.append(trimmed).append('\n');
+      } else if (!trimmed.isEmpty() && !trimmed.startsWith("<?xml")) {
+        break;
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Reason, why a file is skipped.
+   */
+  public enum SkipReason {
+    TOO_LARGE("too large"),
+    MINIFIED("minified"),
+    GENERATED("generated"),
+    QUARANTINED("quarantined"),
+    UNREADABLE("unreadable");
+
+    private final String description;
+
+    SkipReason(String description) {
+      this.description = description;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+  }
+}
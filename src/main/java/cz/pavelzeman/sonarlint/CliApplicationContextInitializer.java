@@ -0,0 +1,121 @@
+package cz.pavelzeman.sonarlint;
+
+import java.util.Collection;
+import java.util.List;
+import org.sonarsource.sonarlint.core.BindingSuggestionProvider;
+import org.sonarsource.sonarlint.core.ConnectionSuggestionProvider;
+import org.sonarsource.sonarlint.core.VersionSoonUnsupportedHelper;
+import org.sonarsource.sonarlint.core.labs.IdeLabsSpringConfig;
+import org.sonarsource.sonarlint.core.rpc.protocol.SonarLintRpcClient;
+import org.sonarsource.sonarlint.core.rpc.protocol.backend.initialize.InitializeParams;
+import org.sonarsource.sonarlint.core.server.event.ServerEventsService;
+import org.sonarsource.sonarlint.core.smartnotifications.SmartNotifications;
+import org.sonarsource.sonarlint.core.spring.SonarLintSpringAppConfig;
+import org.sonarsource.sonarlint.core.spring.SpringApplicationContextInitializer;
+import org.sonarsource.sonarlint.core.telemetry.TelemetryService;
+import org.sonarsource.sonarlint.core.telemetry.TelemetrySpringConfig;
+import org.sonarsource.sonarlint.core.telemetry.gessie.GessieSpringConfig;
+import org.sonarsource.sonarlint.core.tracking.TaintVulnerabilityTrackingService;
+import org.sonarsource.sonarlint.core.websocket.WebSocketService;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.event.AbstractApplicationEventMulticaster;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.ResolvableType;
+
+/**
+ * Variant of {@link SpringApplicationContextInitializer} for the CLI. It registers the same beans. In minimal mode, events are not delivered to subsystems, which
+ * are useful only in IDEs, and these subsystems are initialized lazily, i.e. only when they are needed by another bean, so that they are typically not
+ * initialized at all. Otherwise, it behaves exactly as {@link SpringApplicationContextInitializer}.
+ */
+public class CliApplicationContextInitializer implements AutoCloseable {
+
+  /**
+   * Classes, whose event listeners are skipped. These are binding and connection suggestions, server-sent and WebSocket events (including hotspot and taint
+   * vulnerability changes), smart notifications and telemetry.
+   */
+  private static final List<Class<?>> SKIPPED_LISTENER_CLASSES = List.of(
+      BindingSuggestionProvider.class,
+      ConnectionSuggestionProvider.class,
+      ServerEventsService.class,
+      WebSocketService.class,
+      SmartNotifications.class,
+      TaintVulnerabilityTrackingService.class,
+      TelemetryService.class,
+      VersionSoonUnsupportedHelper.class
+  );
+
+  private final AnnotationConfigApplicationContext applicationContext;
+
+  /**
+   * Creates and initializes application context.
+   *
+   * @param client client used by the analysis engine
+   * @param params initialization parameters
+   * @param minimal true to initialize only beans needed by the CLI
+   */
+  public CliApplicationContextInitializer(SonarLintRpcClient client, InitializeParams params, boolean minimal) {
+    applicationContext = new AnnotationConfigApplicationContext();
+    applicationContext.register(SonarLintSpringAppConfig.class);
+    applicationContext.register(TelemetrySpringConfig.class);
+    applicationContext.register(GessieSpringConfig.class);
+    applicationContext.register(IdeLabsSpringConfig.class);
+    applicationContext.registerBean("sonarlintClient", SonarLintRpcClient.class, () -> client);
+    applicationContext.registerBean("initializeParams", InitializeParams.class, () -> params);
+    if (minimal) {
+      applicationContext.registerBean(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME, AbstractApplicationEventMulticaster.class,
+          FilteringEventMulticaster::new);
+      // Skipped subsystems are initialized only if another bean needs them. Other beans must be initialized eagerly, because some of them register their state
+      // in constructors (e.g. connections are registered by ConnectionService), which is then used by beans not depending on them.
+      applicationContext.addBeanFactoryPostProcessor(beanFactory -> {
+        for (var beanName : beanFactory.getBeanDefinitionNames()) {
+          var beanDefinition = beanFactory.getBeanDefinition(beanName);
+          if (isSkippedClass(beanDefinition.getBeanClassName())) {
+            beanDefinition.setLazyInit(true);
+          }
+        }
+      });
+    }
+    applicationContext.refresh();
+  }
+
+  private static boolean isSkippedClass(String className) {
+    return className != null && SKIPPED_LISTENER_CLASSES.stream().anyMatch(skippedClass -> skippedClass.getName().equals(className));
+  }
+
+  public ConfigurableApplicationContext getInitializedApplicationContext() {
+    return applicationContext;
+  }
+
+  @Override
+  public void close() {
+    applicationContext.close();
+  }
+
+  /**
+   * Event multicaster, which does not deliver events to listeners declared in {@link #SKIPPED_LISTENER_CLASSES}.
+   */
+  private static class FilteringEventMulticaster extends SimpleApplicationEventMulticaster {
+
+    @Override
+    protected Collection<ApplicationListener<?>> getApplicationListeners(ApplicationEvent event, ResolvableType eventType) {
+      return super.getApplicationListeners(event, eventType).stream().filter(listener -> !isSkipped(listener)).toList();
+    }
+
+    /**
+     * Checks, whether given listener is skipped. Listeners declared using {@code @EventListener} annotation are identified by the qualified name of their
+     * method, so the name is checked. The listener bean is not initialized, so this does not defeat lazy initialization.
+     */
+    private static boolean isSkipped(ApplicationListener<?> listener) {
+      if (listener instanceof SmartApplicationListener smartListener) {
+        var listenerId = smartListener.getListenerId();
+        return SKIPPED_LISTENER_CLASSES.stream().anyMatch(skippedClass -> listenerId.startsWith(skippedClass.getName() + "."));
+      }
+      return SKIPPED_LISTENER_CLASSES.stream().anyMatch(skippedClass -> skippedClass.isInstance(listener));
+    }
+  }
+}
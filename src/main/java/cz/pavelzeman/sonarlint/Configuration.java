@@ -3,8 +3,12 @@ package cz.pavelzeman.sonarlint;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import org.sonarsource.sonarlint.core.commons.log.LogOutput.Level;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
 import org.springframework.util.StringUtils;
 
 /**
@@ -19,9 +23,22 @@ import org.springframework.util.StringUtils;
  * @param tests directories with test files
  * @param projectBaseDir project base directory
  * @param logLevel log level
+ * @param maxFileSize maximum size of analyzed files in kilobytes, larger files are skipped
+ * @param maxFileSizeByExtension maximum size of analyzed files in kilobytes indexed by file extension (overrides {@code maxFileSize})
+ * @param skipGeneratedFiles true, if minified and generated files should be skipped
+ * @param fileTimeout maximum analysis time of a single file in seconds, 0 for no limit
+ * @param issueBudget maximum allowed number of issues indexed by severity, analysis fails as soon as any limit is exceeded (empty if not limited)
+ * @param minimalBackend true, if the analysis engine should skip services used only in IDEs
+ * @param branch name of the analyzed branch, null to detect it from the Git repository
  */
 @SuppressWarnings("java:S6218") // No need to override equals and hashCode, because this is just a "POJO" and is not used in any hash-like structures
-public record Configuration(String host, String token, String organization, String projectKey, String[] sources, String[] tests, String projectBaseDir, Level logLevel) {
+public record Configuration(String host, String token, String organization, String projectKey, String[] sources, String[] tests, String projectBaseDir, Level logLevel,
+                            long maxFileSize, Map<String, Long> maxFileSizeByExtension, boolean skipGeneratedFiles,
+                            long fileTimeout, Map<IssueSeverity, Long> issueBudget, boolean minimalBackend,
+                            String branch) {
+
+  /** Default maximum size of analyzed files in kilobytes. */
+  private static final long DEFAULT_MAX_FILE_SIZE = 5000;
 
   /**
    * Creates configuration object from given properties.
@@ -45,6 +62,15 @@ public record Configuration(String host, String token, String organization, Stri
     // Use INFO as default log level
     var logLevel = logLevelString == null ? Level.INFO : stringToLevel(logLevelString);
 
+    var maxFileSizeString = getProperty(properties, PropertyNames.MAX_FILE_SIZE, false);
+    var maxFileSize = maxFileSizeString == null ? DEFAULT_MAX_FILE_SIZE : parseNumber(PropertyNames.MAX_FILE_SIZE, maxFileSizeString);
+
+    var skipGeneratedFilesString = getProperty(properties, PropertyNames.SKIP_GENERATED_FILES, false);
+
+    var fileTimeoutString = getProperty(properties, PropertyNames.FILE_TIMEOUT, false);
+
+    var minimalBackendString = getProperty(properties, PropertyNames.MINIMAL_BACKEND, false);
+
     return new Configuration(
         getProperty(properties, PropertyNames.HOST, true),
         getProperty(properties, PropertyNames.TOKEN, true),
@@ -53,7 +79,17 @@ public record Configuration(String host, String token, String organization, Stri
         sourceDirs,
         parseSources(getProperty(properties, PropertyNames.TESTS, false)),
         projectBaseDir,
-        logLevel
+        logLevel,
+        maxFileSize,
+        parseFileSizes(getProperty(properties, PropertyNames.MAX_FILE_SIZE_BY_EXTENSION, false)),
+        // Skip generated files by default
+        skipGeneratedFilesString == null || Boolean.parseBoolean(skipGeneratedFilesString),
+        // No time limit by default
+        fileTimeoutString == null ? 0 : parseNumber(PropertyNames.FILE_TIMEOUT, fileTimeoutString),
+        parseIssueBudget(getProperty(properties, PropertyNames.ISSUE_BUDGET, false)),
+        // Use full backend by default, the minimal backend has no measurable effect on run time or memory usage
+        Boolean.parseBoolean(minimalBackendString),
+        getProperty(properties, PropertyNames.BRANCH, false)
     );
   }
 
@@ -115,6 +151,69 @@ public record Configuration(String host, String token, String organization, Stri
     return sources == null ? null : Arrays.stream(sources.split(",")).map(String::trim).toArray(String[]::new);
   }
 
+  /**
+   * Parses non-negative number (e.g. file size or timeout). Throws exception, if the number is invalid.
+   *
+   * @param property property name used in error message
+   * @param number string to parse
+   * @return Parsed number.
+   */
+  private static long parseNumber(String property, String number) {
+    try {
+      var result = Long.parseLong(number.trim());
+      if (result < 0) {
+        throw new IllegalArgumentException("Negative value of sonar." + property + " property: " + number);
+      }
+      return result;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of sonar." + property + " property: " + number, e);
+    }
+  }
+
+  /**
+   * Parses comma-separated list of file sizes in format {@code extension=size}, e.g. {@code js=1000,css=500}.
+   *
+   * @param sizes string to parse
+   * @return Map of file sizes indexed by file extension (in lower case).
+   */
+  private static Map<String, Long> parseFileSizes(String sizes) {
+    var result = new HashMap<String, Long>();
+    if (sizes != null) {
+      for (var item : sizes.split(",")) {
+        var parts = item.split("=");
+        if (parts.length != 2) {
+          throw new IllegalArgumentException("Invalid value of sonar." + PropertyNames.MAX_FILE_SIZE_BY_EXTENSION + " property: " + sizes);
+        }
+        result.put(parts[0].trim().toLowerCase(), parseNumber(PropertyNames.MAX_FILE_SIZE_BY_EXTENSION, parts[1]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Parses comma-separated list of issue limits in format {@code SEVERITY:limit}, e.g. {@code BLOCKER:0,CRITICAL:10}.
+   *
+   * @param budget string to parse
+   * @return Map of limits indexed by severity.
+   */
+  private static Map<IssueSeverity, Long> parseIssueBudget(String budget) {
+    var result = new EnumMap<IssueSeverity, Long>(IssueSeverity.class);
+    if (budget != null) {
+      for (var item : budget.split(",")) {
+        var parts = item.split(":");
+        if (parts.length != 2) {
+          throw new IllegalArgumentException("Invalid value of sonar." + PropertyNames.ISSUE_BUDGET + " property: " + budget);
+        }
+        try {
+          result.put(IssueSeverity.valueOf(parts[0].trim().toUpperCase()), parseNumber(PropertyNames.ISSUE_BUDGET, parts[1]));
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException("Invalid value of sonar." + PropertyNames.ISSUE_BUDGET + " property: " + budget, e);
+        }
+      }
+    }
+    return result;
+  }
+
   /**
    * Names of configuration properties corresponding to configuration properties in the {@link Configuration} class.
    */
@@ -128,5 +227,12 @@ public record Configuration(String host, String token, String organization, Stri
     public static final String PROJECT_BASE_DIR = "projectBaseDir";
     public static final String LOG_LEVEL = "log.level";
     public static final String ORGANIZATION = "organization";
+    public static final String MAX_FILE_SIZE = "cli.maxFileSize";
+    public static final String MAX_FILE_SIZE_BY_EXTENSION = "cli.maxFileSizeByExtension";
+    public static final String SKIP_GENERATED_FILES = "cli.skipGeneratedFiles";
+    public static final String FILE_TIMEOUT = "cli.fileTimeout";
+    public static final String ISSUE_BUDGET = "cli.issueBudget";
+    public static final String MINIMAL_BACKEND = "cli.minimalBackend";
+    public static final String BRANCH = "branch.name";
   }
 }
@@ -0,0 +1,53 @@
+package cz.pavelzeman.sonarlint;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Reader of file lists separated either by NUL characters (e.g. output of {@code find -print0} or {@code git ls-files -z}) or by new lines.
+ * The separator is detected automatically based on the first separator found. The list is read as a stream, so it can be arbitrarily long.
+ */
+public class FileListReader {
+
+  private final Reader reader;
+
+  /** Separator of file names, -1 until the first NUL or new line character is found. */
+  private int separator = -1;
+
+  public FileListReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads all file names and passes them to given consumer. Empty names are ignored.
+   *
+   * @param consumer consumer of file names
+   */
+  public void read(Consumer<String> consumer) throws IOException {
+    var name = new StringBuilder();
+    int c;
+    while ((c = reader.read()) != -1) {
+      if (separator == -1 && (c == '\0' || c == '\n')) {
+        separator = c;
+      }
+      if (c == separator) {
+        accept(name, consumer);
+      } else {
+        name.append((char) c);
+      }
+    }
+    accept(name, consumer);
+  }
+
+  private void accept(StringBuilder name, Consumer<String> consumer) {
+    // Handle Windows line endings
+    if (separator == '\n' && !name.isEmpty() && name.charAt(name.length() - 1) == '\r') {
+      name.setLength(name.length() - 1);
+    }
+    if (!name.isEmpty()) {
+      consumer.accept(name.toString());
+    }
+    name.setLength(0);
+  }
+}
@@ -0,0 +1,114 @@
+package cz.pavelzeman.sonarlint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches directory trees for file changes. Events are debounced, i.e. a burst of events (e.g. when saving multiple files at once) is returned as a single batch.
+ */
+public class FileWatcher implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileWatcher.class);
+
+  private final WatchService watchService;
+
+  /** Watched directories indexed by their watch keys. */
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  /** Time without any event, after which the batch of changes is considered complete. */
+  private final Duration debounce;
+
+  public FileWatcher(Duration debounce) throws IOException {
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.debounce = debounce;
+  }
+
+  /**
+   * Registers given directory and all its subdirectories for watching.
+   *
+   * @param root root directory
+   * @param changedFiles set to add all files found in the directory tree to (used for newly created directories), can be null
+   */
+  public void register(Path root, Set<Path> changedFiles) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        var key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, dir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (changedFiles != null) {
+          changedFiles.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Waits for the next batch of changes. It blocks until there is at least one change and then until there is no other change for the debounce period.
+   *
+   * @return Set of changed paths (created, modified or deleted files). Files in newly created directories are returned instead of the directories.
+   * Directories are returned only if some of their changes were lost (because of too many events), all files below them have to be rescanned then.
+   */
+  public Set<Path> waitForChanges() throws InterruptedException, IOException {
+    var changedFiles = new HashSet<Path>();
+    var key = watchService.take();
+    while (key != null) {
+      processEvents(key, changedFiles);
+      key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    return changedFiles;
+  }
+
+  private void processEvents(WatchKey key, Set<Path> changedFiles) throws IOException {
+    var directory = directories.get(key);
+    for (var event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        logger.warn("Too many file system events in {}, all its files are rescanned", directory);
+        // Creation of subdirectories may be lost too, so register the whole tree again (already registered directories keep their keys).
+        // A deleted directory is returned too, so that its files are removed.
+        if (Files.isDirectory(directory)) {
+          register(directory, null);
+        }
+        changedFiles.add(directory);
+        continue;
+      }
+      var path = directory.resolve((Path) event.context());
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+        register(path, changedFiles);
+      } else if (!Files.isDirectory(path)) {
+        changedFiles.add(path);
+      }
+    }
+    if (!key.reset()) {
+      // Directory is no longer accessible (typically deleted)
+      directories.remove(key);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
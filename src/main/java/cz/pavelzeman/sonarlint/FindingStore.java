@@ -0,0 +1,351 @@
+package cz.pavelzeman.sonarlint;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedFindingDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+
+/**
+ * Compact columnar store of findings (issues and hotspots). Only the attributes needed for reporting are kept. Rule keys, file URIs and messages are interned
+ * into integer IDs, so repeated values are stored just once, and all other attributes are stored in primitive arrays. Findings of each file are linked into a list,
+ * so that they can be iterated and removed per file.
+ * <p>
+ * Findings are read using {@link Finding} views, so no objects are created per finding. The store is not thread-safe.
+ */
+public class FindingStore {
+
+  private static final int NONE = -1;
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private StringTable ruleKeys = new StringTable();
+
+  private StringTable messages = new StringTable();
+
+  private final List<URI> files = new ArrayList<>();
+
+  private final Map<URI, Integer> fileIds = new HashMap<>();
+
+  /** First finding of each file indexed by file ID, {@link #NONE} if there is no finding. */
+  private int[] firstFindings = new int[INITIAL_CAPACITY];
+
+  /** Last finding of each file indexed by file ID, {@link #NONE} if there is no finding. */
+  private int[] lastFindings = new int[INITIAL_CAPACITY];
+
+  /** Number of findings of each file indexed by file ID. */
+  private int[] fileFindingCounts = new int[INITIAL_CAPACITY];
+
+  // Finding attributes indexed by finding slot
+  private int[] ruleKeyIds = new int[INITIAL_CAPACITY];
+  private int[] messageIds = new int[INITIAL_CAPACITY];
+  private int[] startLines = new int[INITIAL_CAPACITY];
+  private int[] startLineOffsets = new int[INITIAL_CAPACITY];
+  private int[] endLines = new int[INITIAL_CAPACITY];
+  private int[] endLineOffsets = new int[INITIAL_CAPACITY];
+  /** Severity ordinal, {@link #NONE} if the severity is not available. */
+  private byte[] severities = new byte[INITIAL_CAPACITY];
+  /** Next finding of the same file, {@link #NONE} for the last finding. */
+  private int[] nextFindings = new int[INITIAL_CAPACITY];
+
+  /** Number of used finding slots (including slots of removed findings). */
+  private int slots;
+
+  /** Number of findings, which have not been removed. */
+  private int size;
+
+  /**
+   * Adds findings of given file.
+   *
+   * @param fileUri file URI
+   * @param findings findings to add
+   */
+  public void add(URI fileUri, Collection<? extends RaisedFindingDto> findings) {
+    if (findings.isEmpty()) {
+      return;
+    }
+    var fileId = getFileId(fileUri);
+    for (var finding : findings) {
+      ensureFindingCapacity(slots + 1);
+      var slot = slots++;
+      ruleKeyIds[slot] = ruleKeys.intern(finding.getRuleKey());
+      messageIds[slot] = messages.intern(finding.getPrimaryMessage());
+      var textRange = finding.getTextRange();
+      startLines[slot] = textRange == null ? NONE : textRange.getStartLine();
+      startLineOffsets[slot] = textRange == null ? NONE : textRange.getStartLineOffset();
+      endLines[slot] = textRange == null ? NONE : textRange.getEndLine();
+      endLineOffsets[slot] = textRange == null ? NONE : textRange.getEndLineOffset();
+      var severity = Severities.findSeverity(finding);
+      severities[slot] = severity == null ? NONE : (byte) severity.ordinal();
+      nextFindings[slot] = NONE;
+      if (lastFindings[fileId] == NONE) {
+        firstFindings[fileId] = slot;
+      } else {
+        nextFindings[lastFindings[fileId]] = slot;
+      }
+      lastFindings[fileId] = slot;
+      fileFindingCounts[fileId]++;
+      size++;
+    }
+  }
+
+  /**
+   * Removes all findings of given file.
+   *
+   * @param fileUri file URI
+   */
+  public void remove(URI fileUri) {
+    var fileId = fileIds.get(fileUri);
+    if (fileId == null || fileFindingCounts[fileId] == 0) {
+      return;
+    }
+    size -= fileFindingCounts[fileId];
+    firstFindings[fileId] = NONE;
+    lastFindings[fileId] = NONE;
+    fileFindingCounts[fileId] = 0;
+    // Slots of removed findings are reused only after compaction, so compact, when most of the slots are unused
+    if (slots > INITIAL_CAPACITY && size < slots / 2) {
+      compact();
+    }
+  }
+
+  /**
+   * Gets number of findings in the store.
+   *
+   * @return Number of findings.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets all files, which have at least one finding.
+   *
+   * @return Files with findings in the order, in which they were first added.
+   */
+  public List<URI> getFiles() {
+    var result = new ArrayList<URI>();
+    for (var fileId = 0; fileId < files.size(); fileId++) {
+      if (fileFindingCounts[fileId] > 0) {
+        result.add(files.get(fileId));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets number of findings of given file.
+   *
+   * @param fileUri file URI
+   * @return Number of findings.
+   */
+  public int getFindingCount(URI fileUri) {
+    var fileId = fileIds.get(fileUri);
+    return fileId == null ? 0 : fileFindingCounts[fileId];
+  }
+
+  /**
+   * Passes all findings of given file to given consumer in the order, in which they were added. The same {@link Finding} instance is passed for all findings,
+   * so it must not be stored by the consumer.
+   *
+   * @param fileUri file URI
+   * @param consumer finding consumer
+   */
+  public void forEachFinding(URI fileUri, Consumer<Finding> consumer) {
+    var fileId = fileIds.get(fileUri);
+    if (fileId == null) {
+      return;
+    }
+    var finding = new Finding();
+    for (var slot = firstFindings[fileId]; slot != NONE; slot = nextFindings[slot]) {
+      finding.slot = slot;
+      consumer.accept(finding);
+    }
+  }
+
+  private int getFileId(URI fileUri) {
+    return fileIds.computeIfAbsent(fileUri, k -> {
+      var fileId = files.size();
+      files.add(fileUri);
+      if (fileId == firstFindings.length) {
+        var capacity = fileId * 2;
+        firstFindings = Arrays.copyOf(firstFindings, capacity);
+        lastFindings = Arrays.copyOf(lastFindings, capacity);
+        fileFindingCounts = Arrays.copyOf(fileFindingCounts, capacity);
+      }
+      // File IDs are reused after compaction, so all file attributes must be reset
+      firstFindings[fileId] = NONE;
+      lastFindings[fileId] = NONE;
+      fileFindingCounts[fileId] = 0;
+      return fileId;
+    });
+  }
+
+  private void ensureFindingCapacity(int capacity) {
+    if (capacity > ruleKeyIds.length) {
+      resizeFindings(Math.max(capacity, ruleKeyIds.length * 2));
+    }
+  }
+
+  private void resizeFindings(int capacity) {
+    ruleKeyIds = Arrays.copyOf(ruleKeyIds, capacity);
+    messageIds = Arrays.copyOf(messageIds, capacity);
+    startLines = Arrays.copyOf(startLines, capacity);
+    startLineOffsets = Arrays.copyOf(startLineOffsets, capacity);
+    endLines = Arrays.copyOf(endLines, capacity);
+    endLineOffsets = Arrays.copyOf(endLineOffsets, capacity);
+    severities = Arrays.copyOf(severities, capacity);
+    nextFindings = Arrays.copyOf(nextFindings, capacity);
+  }
+
+  /**
+   * Gets number of interned rule keys, messages and file URIs. Used by tests to check, that values of removed findings are released by compaction.
+   *
+   * @return Number of interned values.
+   */
+  int getInternedValueCount() {
+    return ruleKeys.size() + messages.size() + files.size();
+  }
+
+  /**
+   * Moves all findings to the beginning of the arrays, so that slots of removed findings can be reused. Rule keys, messages and files, which are no longer
+   * used by any finding, are released as well.
+   */
+  private void compact() {
+    // New slot of each finding indexed by its current slot, NONE for removed findings
+    var newSlots = new int[slots];
+    Arrays.fill(newSlots, NONE);
+    for (var fileId = 0; fileId < files.size(); fileId++) {
+      for (var slot = firstFindings[fileId]; slot != NONE; slot = nextFindings[slot]) {
+        newSlots[slot] = 0;
+      }
+    }
+    // Move findings in the order of their slots, so that a finding is never overwritten before it is moved
+    var newRuleKeys = new StringTable();
+    var newMessages = new StringTable();
+    var target = 0;
+    for (var slot = 0; slot < slots; slot++) {
+      if (newSlots[slot] != NONE) {
+        newSlots[slot] = target;
+        ruleKeyIds[target] = newRuleKeys.intern(ruleKeys.get(ruleKeyIds[slot]));
+        messageIds[target] = newMessages.intern(messages.get(messageIds[slot]));
+        startLines[target] = startLines[slot];
+        startLineOffsets[target] = startLineOffsets[slot];
+        endLines[target] = endLines[slot];
+        endLineOffsets[target] = endLineOffsets[slot];
+        severities[target] = severities[slot];
+        nextFindings[target] = nextFindings[slot];
+        target++;
+      }
+    }
+    for (var slot = 0; slot < target; slot++) {
+      if (nextFindings[slot] != NONE) {
+        nextFindings[slot] = newSlots[nextFindings[slot]];
+      }
+    }
+    ruleKeys = newRuleKeys;
+    messages = newMessages;
+    slots = target;
+
+    // Keep only files with findings, a file ID is never greater than the original one, so the file tables can be compacted in place
+    var oldFiles = new ArrayList<>(files);
+    files.clear();
+    fileIds.clear();
+    for (var fileId = 0; fileId < oldFiles.size(); fileId++) {
+      if (fileFindingCounts[fileId] > 0) {
+        var newFileId = files.size();
+        files.add(oldFiles.get(fileId));
+        fileIds.put(oldFiles.get(fileId), newFileId);
+        firstFindings[newFileId] = newSlots[firstFindings[fileId]];
+        lastFindings[newFileId] = newSlots[lastFindings[fileId]];
+        fileFindingCounts[newFileId] = fileFindingCounts[fileId];
+      }
+    }
+  }
+
+  /**
+   * View of a single finding in the store.
+   */
+  public final class Finding {
+
+    private int slot;
+
+    private Finding() {
+    }
+
+    public String getRuleKey() {
+      return ruleKeys.get(ruleKeyIds[slot]);
+    }
+
+    public String getPrimaryMessage() {
+      return messages.get(messageIds[slot]);
+    }
+
+    /**
+     * Checks, whether the finding has a text range. Findings without text range relate to the whole file.
+     *
+     * @return True, if the finding has a text range.
+     */
+    public boolean hasTextRange() {
+      return startLines[slot] != NONE;
+    }
+
+    public int getStartLine() {
+      return startLines[slot];
+    }
+
+    public int getStartLineOffset() {
+      return startLineOffsets[slot];
+    }
+
+    public int getEndLine() {
+      return endLines[slot];
+    }
+
+    public int getEndLineOffset() {
+      return endLineOffsets[slot];
+    }
+
+    /**
+     * Gets severity of the finding. See {@link Severities#getSeverity(RaisedFindingDto)} for details.
+     *
+     * @return Finding severity.
+     */
+    public IssueSeverity getSeverity() {
+      if (severities[slot] == NONE) {
+        throw new SonarLintException("Invalid issue severity (null)");
+      }
+      return IssueSeverity.values()[severities[slot]];
+    }
+  }
+
+  /**
+   * Table of interned strings. Each distinct string is stored just once and identified by its index.
+   */
+  private static class StringTable {
+
+    private final List<String> values = new ArrayList<>();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    int intern(String value) {
+      return ids.computeIfAbsent(value, k -> {
+        values.add(value);
+        return values.size() - 1;
+      });
+    }
+
+    String get(int id) {
+      return values.get(id);
+    }
+
+    int size() {
+      return values.size();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package cz.pavelzeman.sonarlint;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detection of the current branch of a Git repository. The branch is read directly from the {@code HEAD} file, so Git does not need to be installed.
+ */
+public class GitBranchDetector {
+
+  private static final Logger logger = LoggerFactory.getLogger(GitBranchDetector.class);
+
+  private static final String GIT_DIRECTORY = ".git";
+
+  /** Prefix of the {@code .git} file of worktrees and submodules, which points to the actual Git directory. */
+  private static final String GIT_DIRECTORY_PREFIX = "gitdir:";
+
+  /** Prefix of the {@code HEAD} file content, when a branch is checked out. */
+  private static final String BRANCH_REF_PREFIX = "ref: refs/heads/";
+
+  private GitBranchDetector() {
+  }
+
+  /**
+   * Detects current branch of the Git repository containing given directory.
+   *
+   * @param directory directory inside the repository (typically project base directory)
+   * @return Branch name or null, if the directory is not in a Git repository or no branch is checked out (detached HEAD).
+   */
+  public static String detect(Path directory) {
+    try {
+      var gitDirectory = findGitDirectory(directory.toAbsolutePath().normalize());
+      if (gitDirectory == null) {
+        logger.debug("No Git repository found in {}", directory);
+        return null;
+      }
+      var head = Files.readString(gitDirectory.resolve("HEAD"), StandardCharsets.UTF_8).trim();
+      if (!head.startsWith(BRANCH_REF_PREFIX)) {
+        logger.debug("Git repository in {} has detached HEAD", gitDirectory);
+        return null;
+      }
+      return head.substring(BRANCH_REF_PREFIX.length());
+    } catch (IOException e) {
+      logger.warn("Error when detecting Git branch", e);
+      return null;
+    }
+  }
+
+  /**
+   * Finds Git directory of the repository containing given directory.
+   *
+   * @param directory absolute path of the directory
+   * @return Git directory or null, if the directory is not in a Git repository.
+   */
+  private static Path findGitDirectory(Path directory) throws IOException {
+    for (var current = directory; current != null; current = current.getParent()) {
+      var git = current.resolve(GIT_DIRECTORY);
+      if (Files.isDirectory(git)) {
+        return git;
+      }
+      if (Files.isRegularFile(git)) {
+        var content = Files.readString(git, StandardCharsets.UTF_8).trim();
+        if (content.startsWith(GIT_DIRECTORY_PREFIX)) {
+          return current.resolve(content.substring(GIT_DIRECTORY_PREFIX.length()).trim()).normalize();
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,77 @@
+package cz.pavelzeman.sonarlint;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedFindingDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+
+/**
+ * Maximum allowed number of issues per severity. It is used to stop the analysis as soon as the build is known to fail. Security hotspots are counted as well,
+ * because they are reported the same way as issues.
+ */
+public class IssueBudget {
+
+  /** Maximum allowed number of issues indexed by severity. Severities not present in the map are not limited. */
+  private final Map<IssueSeverity, Long> limits;
+
+  /** Number of issues per severity (indexed by severity ordinal) for each file. */
+  private final Map<URI, long[]> issueCountsByFile = new HashMap<>();
+
+  /** Number of hotspots per severity (indexed by severity ordinal) for each file. */
+  private final Map<URI, long[]> hotspotCountsByFile = new HashMap<>();
+
+  /** Total number of issues per severity (indexed by severity ordinal). */
+  private final long[] totals = new long[IssueSeverity.values().length];
+
+  public IssueBudget(Map<IssueSeverity, Long> limits) {
+    this.limits = limits;
+  }
+
+  /**
+   * Sets issues of given file. Previous issues of the file are replaced.
+   *
+   * @param fileUri file URI
+   * @param issues all issues of the file
+   */
+  public void setIssues(URI fileUri, Collection<? extends RaisedFindingDto> issues) {
+    setFindings(issueCountsByFile, fileUri, issues);
+  }
+
+  /**
+   * Sets hotspots of given file. Previous hotspots of the file are replaced.
+   *
+   * @param fileUri file URI
+   * @param hotspots all hotspots of the file
+   */
+  public void setHotspots(URI fileUri, Collection<? extends RaisedFindingDto> hotspots) {
+    setFindings(hotspotCountsByFile, fileUri, hotspots);
+  }
+
+  private void setFindings(Map<URI, long[]> countsByFile, URI fileUri, Collection<? extends RaisedFindingDto> findings) {
+    var counts = new long[IssueSeverity.values().length];
+    for (var finding : findings) {
+      counts[Severities.getSeverity(finding).ordinal()]++;
+    }
+    var previousCounts = countsByFile.put(fileUri, counts);
+    for (var i = 0; i < totals.length; i++) {
+      totals[i] += counts[i] - (previousCounts == null ? 0 : previousCounts[i]);
+    }
+  }
+
+  /**
+   * Checks, whether the budget is exceeded.
+   *
+   * @return Description of the exceeded limit (e.g. "11 CRITICAL issues, limit is 10") or null, if the budget is not exceeded.
+   */
+  public String getExceededLimit() {
+    for (var limit : limits.entrySet()) {
+      var count = totals[limit.getKey().ordinal()];
+      if (count > limit.getValue()) {
+        return count + " " + limit.getKey() + " issues, limit is " + limit.getValue();
+      }
+    }
+    return null;
+  }
+}
@@ -1,28 +1,53 @@
 package cz.pavelzeman.sonarlint;
 
+import cz.pavelzeman.sonarlint.AnalysisFileFilter.SkipReason;
+import cz.pavelzeman.sonarlint.jfr.FileDiscoveryEvent;
+import cz.pavelzeman.sonarlint.jfr.PhaseEvent;
+import cz.pavelzeman.sonarlint.reporter.Baseline;
+import cz.pavelzeman.sonarlint.reporter.RuleCache;
 import cz.pavelzeman.sonarlint.reporter.TeamCity;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.jar.Manifest;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonarsource.sonarlint.core.ConfigurationService;
 import org.sonarsource.sonarlint.core.ServerFileExclusions;
 import org.sonarsource.sonarlint.core.analysis.AnalysisService;
 import org.sonarsource.sonarlint.core.commons.log.SonarLintLogger;
+import org.sonarsource.sonarlint.core.commons.progress.TaskManager;
 import org.sonarsource.sonarlint.core.fs.ClientFileSystemService;
 import org.sonarsource.sonarlint.core.plugin.commons.sonarapi.MapSettings;
 import org.sonarsource.sonarlint.core.repository.rules.RulesRepository;
+import org.sonarsource.sonarlint.core.serverconnection.StoredPlugin;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.config.binding.BindingConfigurationDto;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.config.scope.ConfigurationScopeDto;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.connection.config.SonarCloudConnectionConfigurationDto;
@@ -38,27 +63,82 @@ import org.sonarsource.sonarlint.core.rpc.protocol.backend.log.LogLevel;
 import org.sonarsource.sonarlint.core.rpc.protocol.common.ClientFileDto;
 import org.sonarsource.sonarlint.core.rpc.protocol.common.Language;
 import org.sonarsource.sonarlint.core.rpc.protocol.common.SonarCloudRegion;
-import org.sonarsource.sonarlint.core.spring.SpringApplicationContextInitializer;
 import org.sonarsource.sonarlint.core.storage.StorageService;
 
 @SuppressWarnings("java:S106") // This is a command line application, so using standard input/output is necessary
 public class Main {
 
+  private static final Logger logger = LoggerFactory.getLogger(Main.class);
+
   /** Configuration scope ID used for the analysis. */
   private static final String CONFIGURATION_SCOPE_ID = "sonarLintCliConfigurationScope";
 
+  /** Time without any file change, after which the changed files are re-analyzed in watch mode. */
+  private static final Duration WATCH_DEBOUNCE = Duration.ofMillis(200);
+
+  /** Exit code used, when the issue budget is exceeded. */
+  private static final int EXIT_CODE_ISSUE_BUDGET_EXCEEDED = 2;
+
+  /**
+   * Number of files analyzed together, when the analysis time of a single file is limited. The analysis engine does not report progress of individual files,
+   * so a file exceeding the limit is detected only after the limit of its whole batch is exceeded, which is why the batches are small.
+   */
+  private static final int ANALYSIS_BATCH_SIZE = 10;
+
+  /** Time added to the time limit of each batch to cover fixed costs of analyzers (e.g. starting Node.js for JavaScript analysis). */
+  private static final Duration ANALYZER_STARTUP_ALLOWANCE = Duration.ofSeconds(30);
+
+  /** Maximum time to wait for the analysis to stop after it is cancelled because of exceeded issue budget. */
+  private static final Duration ANALYSIS_STOP_TIMEOUT = Duration.ofSeconds(30);
+
+  /** Number of files registered in the analysis engine at once, when reading list of files to analyze. */
+  private static final int FILE_REGISTRATION_BATCH_SIZE = 1000;
+
   /** Configuration read from input properties file. */
   private Configuration configuration;
 
-  private SpringApplicationContextInitializer initializer;
+  private CliApplicationContextInitializer initializer;
 
   private SonarLintCliRpcClient client;
 
   private final List<ClientFileDto> inputFiles = new ArrayList<>();
 
+  /** True, if the files should be watched and re-analyzed after the initial analysis. */
+  private boolean watch;
+
+  /** Path to configuration file given on command line. */
+  private String configurationFile;
+
+  /** File with list of files to analyze ("-" for standard input), null to analyze all files in source and test directories. */
+  private String filesFrom;
+
+  /** Baseline file with known findings, which are not reported, null to report all findings. */
+  private String baselineFile;
+
+  /** File to write baseline of all current findings to, null if no baseline should be written. */
+  private String writeBaselineFile;
+
+  /** File to dump JFR recording to, null if no recording should be started. */
+  private String jfrFile;
+
+  /** JFR recording started by the --jfr option, null if not started. */
+  private Recording recording;
+
   /** Exclusion filters from server configuration. */
   private ServerFileExclusions exclusionFilters;
 
+  /** Filter of files, which are too large or generated. */
+  private AnalysisFileFilter analysisFileFilter;
+
+  /** Files skipped by {@link #analysisFileFilter} indexed by skip reason. */
+  private final Map<SkipReason, List<Path>> skippedFiles = new EnumMap<>(SkipReason.class);
+
+  /** Files, whose analysis exceeded the time limit in previous runs. */
+  private Quarantine quarantine;
+
+  /** Files, whose analysis exceeded the time limit in this run. */
+  private final List<Path> timedOutFiles = new ArrayList<>();
+
   /** Blacklist of backend capabilities. It contains all items, which are not needed for CLI usage. */
   private static final Set<BackendCapability> disabledBackendCapabilities = Set.of(
       BackendCapability.EMBEDDED_SERVER,
@@ -68,7 +148,9 @@ public class Main {
       BackendCapability.GESSIE_TELEMETRY,
       BackendCapability.MONITORING,
       BackendCapability.SMART_NOTIFICATIONS,
-      BackendCapability.SERVER_SENT_EVENTS
+      BackendCapability.SERVER_SENT_EVENTS,
+      BackendCapability.SCA_SYNCHRONIZATION,
+      BackendCapability.CONTEXT_GENERATION
   );
 
   /**
@@ -77,17 +159,36 @@ public class Main {
    * @return Current version.
    */
   private String getVersion() throws IOException {
+    return getManifestAttribute("Implementation-Version");
+  }
+
+  /**
+   * Returns version of SonarLint Core used by the tool based on the MANIFEST.MF file.
+   *
+   * @return SonarLint Core version.
+   */
+  private String getSonarLintCoreVersion() throws IOException {
+    return getManifestAttribute("SonarLint-Core-Version");
+  }
+
+  /**
+   * Returns value of given main attribute of the MANIFEST.MF file.
+   *
+   * @param name attribute name
+   * @return Attribute value or "unknown", if it is not available.
+   */
+  private String getManifestAttribute(String name) throws IOException {
     var manifestResource = getClass().getResourceAsStream("/META-INF/MANIFEST.MF");
-    var version = "unknown";
+    var value = "unknown";
     if (manifestResource != null) {
       var manifest = new Manifest(manifestResource);
       var attrs = manifest.getMainAttributes();
-      var manifestVersion = attrs.getValue("Implementation-Version");
-      if (manifestVersion != null) {
-        version = manifestVersion;
+      var manifestValue = attrs.getValue(name);
+      if (manifestValue != null) {
+        value = manifestValue;
       }
     }
-    return version;
+    return value;
   }
 
   /**
@@ -142,7 +243,9 @@ public class Main {
             null
         ),
         null,
-        new HashSet<>(Arrays.stream(BackendCapability.values()).filter(c -> !disabledBackendCapabilities.contains(c)).toList()),
+        new HashSet<>(Arrays.stream(BackendCapability.values()).filter(c -> !disabledBackendCapabilities.contains(c)
+            // Issue streaming is needed to check issue budget during analysis
+            || (c == BackendCapability.ISSUE_STREAMING && isIssueBudgetEnabled())).toList()),
         getSonarLintHome().resolve("storage"),
         getSonarLintHome().resolve("work"),
         null,
@@ -196,16 +299,23 @@ public class Main {
    */
   private void getInputFiles() {
     prepareExclusionFilters();
+    analysisFileFilter = new AnalysisFileFilter(configuration);
+    quarantine = new Quarantine(getSonarLintHome().resolve("work"));
+
+    if (filesFrom != null) {
+      readInputFiles();
+      return;
+    }
 
     for (var sourcePathString : configuration.sources()) {
       var sourcePath = Path.of(configuration.projectBaseDir(), sourcePathString);
-      listFiles(sourcePath, sourcePath, Type.MAIN);
+      discoverFiles(sourcePath, Type.MAIN);
     }
 
     if (configuration.tests() != null) {
       for (var testPathString : configuration.tests()) {
         var testPath = Path.of(configuration.projectBaseDir(), testPathString);
-        listFiles(testPath, testPath, Type.TEST);
+        discoverFiles(testPath, Type.TEST);
       }
     }
 
@@ -214,6 +324,94 @@ public class Main {
     fsService.didUpdateFileSystem(new DidUpdateFileSystemParams(inputFiles, Collections.emptyList(), Collections.emptyList()));
   }
 
+  /**
+   * Reads list of files to analyze from {@link #filesFrom} and adds them to {@link #inputFiles}, if they are located in source or test directories
+   * and accepted by exclusion filters. Relative paths are resolved against project base directory. The files are registered in the analysis engine in batches,
+   * while the list is being read.
+   */
+  private void readInputFiles() {
+    var event = new FileDiscoveryEvent();
+    event.begin();
+    var roots = getRoots();
+    var fsService = initializer.getInitializedApplicationContext().getBean(ClientFileSystemService.class);
+    var batch = new ArrayList<ClientFileDto>();
+    // The same file can be listed multiple times (e.g. as "a.js" and "./a.js"), it must be analyzed just once
+    var listedPaths = new HashSet<Path>();
+    var inputStream = filesFrom.equals("-") ? System.in : null;
+    try (var reader = new BufferedReader(new InputStreamReader(inputStream == null ? new FileInputStream(filesFrom) : inputStream, StandardCharsets.UTF_8))) {
+      new FileListReader(reader).read(name -> {
+        var path = Path.of(configuration.projectBaseDir()).resolve(name).normalize();
+        if (!listedPaths.add(path)) {
+          return;
+        }
+        var root = getRoot(path, roots);
+        if (root == null) {
+          logger.debug("Skipping file {} outside of source and test directories", path);
+        } else if (Files.isRegularFile(path) && acceptFile(path, root, roots.get(root))) {
+          batch.add(createClientFile(path, root, roots.get(root)));
+          if (batch.size() == FILE_REGISTRATION_BATCH_SIZE) {
+            registerInputFiles(fsService, batch);
+          }
+        }
+      });
+    } catch (IOException e) {
+      throw new SonarLintException("Error when reading list of files to analyze", e);
+    }
+    registerInputFiles(fsService, batch);
+    event.root = filesFrom;
+    event.files = inputFiles.size();
+    event.commit();
+  }
+
+  /**
+   * Registers given files in the analysis engine and moves them to {@link #inputFiles}.
+   *
+   * @param fsService file system service of the analysis engine
+   * @param files files to register, the list is cleared
+   */
+  private void registerInputFiles(ClientFileSystemService fsService, List<ClientFileDto> files) {
+    if (!files.isEmpty()) {
+      fsService.didUpdateFileSystem(new DidUpdateFileSystemParams(new ArrayList<>(files), Collections.emptyList(), Collections.emptyList()));
+      inputFiles.addAll(files);
+      files.clear();
+    }
+  }
+
+  /**
+   * Gets root directory containing given path. If there are multiple such directories, the most specific one is used,
+   * because test directories are often located inside source directories.
+   *
+   * @param path path to find root for
+   * @param roots configured root directories
+   * @return Root directory or null, if the path is not located in any root directory.
+   */
+  private Path getRoot(Path path, Map<Path, InputFile.Type> roots) {
+    Path root = null;
+    for (var candidate : roots.keySet()) {
+      if (path.startsWith(candidate) && (root == null || candidate.getNameCount() > root.getNameCount())) {
+        root = candidate;
+      }
+    }
+    return root;
+  }
+
+  /**
+   * Lists all files in given root directory and records the discovery as JFR event.
+   *
+   * @param root root directory
+   * @param type file type (source or test)
+   */
+  private void discoverFiles(Path root, InputFile.Type type) {
+    var event = new FileDiscoveryEvent();
+    event.begin();
+    var filesBefore = inputFiles.size();
+    listFiles(root, root, type);
+    event.root = root.toString();
+    event.type = type.name();
+    event.files = inputFiles.size() - filesBefore;
+    event.commit();
+  }
+
   /**
    * Lists all files in given root path recursively and adds them to {@link #inputFiles}, if they are accepted by exclusion filters.
    *
@@ -226,18 +424,8 @@ public class Main {
       pathStream.forEach(path -> {
         if (Files.isDirectory(path)) {
           listFiles(path, root, type);
-        } else if (exclusionFilters.accept(root.relativize(path).toString(), type)) {
-          inputFiles.add(new ClientFileDto(
-              path.toUri(),
-              root.relativize(path),
-              CONFIGURATION_SCOPE_ID,
-              type == Type.TEST,
-              null,
-              path,
-              null,
-              null,
-              true
-          ));
+        } else if (acceptFile(path, root, type)) {
+          inputFiles.add(createClientFile(path, root, type));
         }
       });
     } catch (IOException e) {
@@ -245,12 +433,76 @@ public class Main {
     }
   }
 
+  /**
+   * Checks, whether given file should be analyzed. Files skipped because of their size or content are recorded in {@link #skippedFiles}.
+   *
+   * @param path absolute file path
+   * @param root root directory used to relativize file path
+   * @param type file type (source or test)
+   * @return True, if the file should be analyzed.
+   */
+  private boolean acceptFile(Path path, Path root, InputFile.Type type) {
+    if (!exclusionFilters.accept(root.relativize(path).toString(), type)) {
+      return false;
+    }
+    var skipReason = analysisFileFilter.check(path);
+    if (skipReason == null && quarantine.isQuarantined(path)) {
+      skipReason = SkipReason.QUARANTINED;
+    }
+    if (skipReason != null) {
+      logger.debug("Skipping {} file {}", skipReason.getDescription(), path);
+      skippedFiles.computeIfAbsent(skipReason, k -> new ArrayList<>()).add(path);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Creates file representation used by the analysis engine.
+   *
+   * @param path absolute file path
+   * @param root root directory used to relativize file path
+   * @param type file type (source or test)
+   * @return File representation.
+   */
+  private ClientFileDto createClientFile(Path path, Path root, InputFile.Type type) {
+    return new ClientFileDto(
+        path.toUri(),
+        root.relativize(path),
+        CONFIGURATION_SCOPE_ID,
+        type == Type.TEST,
+        null,
+        path,
+        null,
+        null,
+        true
+    );
+  }
+
+  /**
+   * Gets all configured root directories with their file types. Test roots are listed after source roots.
+   *
+   * @return Map of root directories to file types.
+   */
+  private Map<Path, InputFile.Type> getRoots() {
+    var roots = new LinkedHashMap<Path, InputFile.Type>();
+    for (var sourcePathString : configuration.sources()) {
+      roots.put(Path.of(configuration.projectBaseDir(), sourcePathString).normalize(), Type.MAIN);
+    }
+    if (configuration.tests() != null) {
+      for (var testPathString : configuration.tests()) {
+        roots.put(Path.of(configuration.projectBaseDir(), testPathString).normalize(), Type.TEST);
+      }
+    }
+    return roots;
+  }
+
   /**
    * Connects to SonarQube server and synchronizes configuration.
    */
   private void synchronizeConfiguration() throws IOException, InterruptedException {
     var params = createInitializeParams();
-    initializer = new SpringApplicationContextInitializer(client, params);
+    initializer = new CliApplicationContextInitializer(client, params, configuration.minimalBackend());
     var configurationService = initializer.getInitializedApplicationContext().getBean(ConfigurationService.class);
     var configurationScope = new ConfigurationScopeDto(
         CONFIGURATION_SCOPE_ID,
@@ -268,9 +520,254 @@ public class Main {
    * Runs project analysis.
    */
   private void analyze() {
+    if (configuration.fileTimeout() > 0) {
+      analyzeWithTimeout(inputFiles.stream().map(ClientFileDto::getUri).toList());
+      quarantine.save();
+      return;
+    }
     var analysisService = initializer.getInitializedApplicationContext().getBean(AnalysisService.class);
-    var analysisId = analysisService.analyzeFullProject(CONFIGURATION_SCOPE_ID, false);
-    client.waitForProgress(analysisId.toString());
+    var analysisId = analysisService.analyzeFullProject(CONFIGURATION_SCOPE_ID, false).toString();
+    if (!client.waitForProgress(analysisId, null)) {
+      // Issue budget is exceeded, so there is no need to finish the analysis
+      stopAnalysis(analysisId);
+    }
+  }
+
+  /**
+   * Cancels running analysis.
+   *
+   * @param analysisId analysis ID
+   */
+  private void cancelAnalysis(String analysisId) {
+    initializer.getInitializedApplicationContext().getBean(TaskManager.class).cancel(analysisId);
+  }
+
+  /**
+   * Cancels running analysis, because the issue budget is exceeded, and waits for it to stop, so that its findings are not published while they are reported.
+   * If the analysis does not stop in time, its later publications are ignored by the client.
+   *
+   * @param analysisId analysis ID
+   */
+  private void stopAnalysis(String analysisId) {
+    cancelAnalysis(analysisId);
+    if (!client.waitForProgressEnd(analysisId, ANALYSIS_STOP_TIMEOUT)) {
+      logger.warn("Analysis did not stop within {} seconds after it was cancelled", ANALYSIS_STOP_TIMEOUT.toSeconds());
+    }
+  }
+
+  /**
+   * Checks, whether the issue budget is checked. It is not checked in watch mode, because the analysis never ends there.
+   *
+   * @return True, if the issue budget is checked.
+   */
+  private boolean isIssueBudgetEnabled() {
+    return !configuration.issueBudget().isEmpty() && !watch;
+  }
+
+  /**
+   * Gets name of the analyzed branch. It is either configured explicitly or detected from the Git repository containing project base directory.
+   *
+   * @return Branch name or null, if it is not known.
+   */
+  private String getBranch() {
+    var branch = configuration.branch();
+    if (branch == null) {
+      branch = GitBranchDetector.detect(Path.of(configuration.projectBaseDir()));
+    }
+    logger.info("Analyzed branch: {}", branch == null ? "unknown (main branch is used)" : branch);
+    return branch;
+  }
+
+  /**
+   * Analyzes given files in batches, so that analysis of a single file cannot exceed the configured time limit.
+   * The analysis engine does not report progress of individual files, so each batch gets the time limit multiplied by the number of its files
+   * (plus {@link #ANALYZER_STARTUP_ALLOWANCE}). If a batch exceeds the limit, it is cancelled and its files are analyzed again one by one, so that the files
+   * exceeding the limit are identified. Only such files (analyzed alone) are added to {@link #quarantine}.
+   * <p>
+   * If a batch cannot be cancelled, its files are recorded as suspects and the analysis fails. Suspect files are analyzed alone first by the next run,
+   * so that the file exceeding the limit is quarantined then.
+   *
+   * @param files files to analyze
+   */
+  private void analyzeWithTimeout(List<URI> files) {
+    var batchFiles = new ArrayList<URI>();
+    for (var file : files) {
+      if (quarantine.isSuspect(Path.of(file))) {
+        if (client.getExceededIssueBudget() == null) {
+          analyzeBatch(List.of(file));
+        }
+      } else {
+        batchFiles.add(file);
+      }
+    }
+    for (var i = 0; i < batchFiles.size() && client.getExceededIssueBudget() == null; i += ANALYSIS_BATCH_SIZE) {
+      analyzeBatch(batchFiles.subList(i, Math.min(i + ANALYSIS_BATCH_SIZE, batchFiles.size())));
+    }
+  }
+
+  /**
+   * Analyzes given batch of files with time limit. See {@link #analyzeWithTimeout(List)} for details.
+   *
+   * @param files files to analyze
+   */
+  private void analyzeBatch(List<URI> files) {
+    var timeout = Duration.ofSeconds(configuration.fileTimeout()).multipliedBy(files.size()).plus(ANALYZER_STARTUP_ALLOWANCE);
+    var analysisService = initializer.getInitializedApplicationContext().getBean(AnalysisService.class);
+    var analysisId = analysisService.analyzeFileList(CONFIGURATION_SCOPE_ID, files).toString();
+    if (client.waitForProgress(analysisId, timeout)) {
+      if (files.size() == 1) {
+        quarantine.removeSuspect(Path.of(files.get(0)));
+      }
+      return;
+    }
+    if (client.getExceededIssueBudget() != null) {
+      stopAnalysis(analysisId);
+      return;
+    }
+
+    // Cancellation is cooperative, analyzers check for it typically after each file, so give the analysis some time to stop
+    cancelAnalysis(analysisId);
+    var cancelled = client.waitForProgressEnd(analysisId, Duration.ofSeconds(configuration.fileTimeout()).plus(ANALYZER_STARTUP_ALLOWANCE));
+    // Issues of the cancelled batch may be incomplete, the files are either analyzed again or quarantined
+    client.removeIssues(files);
+    if (files.size() == 1) {
+      var path = Path.of(files.get(0));
+      logger.warn("Analysis of {} exceeded time limit of {} seconds", path, configuration.fileTimeout());
+      timedOutFiles.add(path);
+      quarantine.add(path);
+      if (!cancelled) {
+        quarantine.save();
+        throw new SonarLintException("Analysis of " + path + " exceeded time limit and could not be cancelled, the file was quarantined");
+      }
+      return;
+    }
+    if (!cancelled) {
+      // The analysis engine is blocked, so there is no way to identify the files exceeding the limit. None of them is quarantined, because most of them
+      // are probably fine and quarantined files would be skipped by subsequent runs. They are analyzed alone by the next run instead.
+      quarantine.addSuspects(files.stream().map(Path::of).toList());
+      quarantine.save();
+      throw new SonarLintException("Analysis of a batch of " + files.size() + " files exceeded time limit and could not be cancelled, "
+          + "the files will be analyzed one by one by the next run");
+    }
+    for (var i = 0; i < files.size() && client.getExceededIssueBudget() == null; i++) {
+      analyzeBatch(List.of(files.get(i)));
+    }
+  }
+
+  /**
+   * Watches configured source and test directories and re-analyzes changed files. After each analysis, new issues of the changed files are reported
+   * and resolved issues (including issues of deleted files) are summarized. This method never returns, the application has to be terminated externally.
+   *
+   * @param reporter reporter used to output issues
+   */
+  @SuppressWarnings("java:S2189") // Infinite loop is intended, watch mode runs until the process is terminated
+  private void watch(TeamCity reporter) throws IOException, InterruptedException {
+    var roots = getRoots();
+    var knownFiles = new HashSet<URI>();
+    inputFiles.forEach(file -> knownFiles.add(file.getUri()));
+    try (var watcher = new FileWatcher(WATCH_DEBOUNCE)) {
+      for (var root : roots.keySet()) {
+        watcher.register(root, null);
+      }
+      logger.info("Watching for file changes");
+      while (true) {
+        var changedPaths = watcher.waitForChanges();
+        reanalyze(changedPaths, roots, knownFiles, reporter);
+      }
+    }
+  }
+
+  /**
+   * Replaces directories returned by {@link FileWatcher} (when some of their changes were lost) by all files below them, including known files,
+   * which no longer exist, so that they are treated as deleted.
+   *
+   * @param changedPaths changed paths as returned by {@link FileWatcher}
+   * @param knownFiles files already known to the analysis engine
+   * @return Changed files.
+   */
+  private Set<Path> expandDirectories(Collection<Path> changedPaths, Set<URI> knownFiles) {
+    var result = new LinkedHashSet<Path>();
+    for (var path : changedPaths) {
+      if (!Files.isDirectory(path)) {
+        result.add(path);
+        continue;
+      }
+      try (var pathStream = Files.walk(path)) {
+        pathStream.filter(Files::isRegularFile).forEach(result::add);
+      } catch (IOException e) {
+        throw new SonarLintException("Error when getting list of files to analyze", e);
+      }
+      // URI of an existing directory ends with "/"
+      var directoryUri = path.toUri().toString();
+      knownFiles.stream().filter(uri -> uri.toString().startsWith(directoryUri)).map(Path::of).forEach(result::add);
+    }
+    return result;
+  }
+
+  /**
+   * Notifies the analysis engine about changed files, analyzes them and reports their issues.
+   *
+   * @param changedPaths changed paths as returned by {@link FileWatcher}
+   * @param roots configured root directories with their file types
+   * @param knownFiles files already known to the analysis engine, updated by this method
+   * @param reporter reporter used to output issues
+   */
+  private void reanalyze(Collection<Path> changedPaths, Map<Path, InputFile.Type> roots, Set<URI> knownFiles, TeamCity reporter) {
+    var addedFiles = new ArrayList<ClientFileDto>();
+    var changedFiles = new ArrayList<ClientFileDto>();
+    var removedFiles = new ArrayList<URI>();
+    for (var path : expandDirectories(changedPaths, knownFiles)) {
+      if (!Files.exists(path)) {
+        // The path can be also a deleted directory, so remove all files below it
+        var removedUri = path.toUri().toString();
+        knownFiles.removeIf(uri -> {
+          var removed = uri.toString().equals(removedUri) || uri.toString().startsWith(removedUri + "/");
+          if (removed) {
+            removedFiles.add(uri);
+          }
+          return removed;
+        });
+        continue;
+      }
+      var root = getRoot(path, roots);
+      var type = roots.get(root);
+      if (root != null && acceptFile(path, root, type)) {
+        var clientFile = createClientFile(path, root, type);
+        if (knownFiles.add(clientFile.getUri())) {
+          addedFiles.add(clientFile);
+        } else {
+          changedFiles.add(clientFile);
+        }
+      } else if (knownFiles.remove(path.toUri())) {
+        // The file is no longer accepted (e.g. it has grown too large)
+        removedFiles.add(path.toUri());
+      }
+    }
+    if (addedFiles.isEmpty() && changedFiles.isEmpty() && removedFiles.isEmpty()) {
+      return;
+    }
+
+    var fsService = initializer.getInitializedApplicationContext().getBean(ClientFileSystemService.class);
+    fsService.didUpdateFileSystem(new DidUpdateFileSystemParams(addedFiles, changedFiles, removedFiles));
+    var analyzedFiles = new ArrayList<URI>();
+    addedFiles.forEach(file -> analyzedFiles.add(file.getUri()));
+    changedFiles.forEach(file -> analyzedFiles.add(file.getUri()));
+    client.removeIssues(removedFiles);
+    client.removeIssues(analyzedFiles);
+    if (!analyzedFiles.isEmpty()) {
+      logger.info("Analyzing {} changed files", analyzedFiles.size());
+      if (configuration.fileTimeout() > 0) {
+        analyzeWithTimeout(analyzedFiles);
+        quarantine.save();
+      } else {
+        var analysisService = initializer.getInitializedApplicationContext().getBean(AnalysisService.class);
+        var analysisId = analysisService.analyzeFileList(CONFIGURATION_SCOPE_ID, analyzedFiles);
+        client.waitForProgress(analysisId.toString());
+      }
+    }
+    var reportedFiles = new ArrayList<>(analyzedFiles);
+    reportedFiles.addAll(removedFiles);
+    reporter.reportIssueChanges(client.getIssues(), reportedFiles);
   }
 
   /**
@@ -282,6 +779,43 @@ public class Main {
     return file.getName();
   }
 
+  /**
+   * Gets version of the ruleset used for the analysis. It is a hash of all analyzer plugins downloaded from the server, so it changes whenever any analyzer changes.
+   * Versions of the tool and SonarLint Core are included too, because they affect how the rules are rendered.
+   *
+   * @return Ruleset version.
+   */
+  private String getRulesetVersion() {
+    var storageService = initializer.getInitializedApplicationContext().getBean(StorageService.class);
+    var plugins = new ArrayList<>(storageService.connection(getConnectionId()).plugins().getStoredPlugins());
+    plugins.sort(Comparator.comparing(StoredPlugin::getKey));
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(("cli:" + getVersion() + "\n").getBytes(StandardCharsets.UTF_8));
+      digest.update(("sonarlint-core:" + getSonarLintCoreVersion() + "\n").getBytes(StandardCharsets.UTF_8));
+      for (var plugin : plugins) {
+        digest.update((plugin.getKey() + ":" + plugin.getHash() + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      throw new SonarLintException("Error when computing ruleset version", e);
+    }
+  }
+
+  /**
+   * Creates cache of rule definitions used by the reporter. Rules repository is accessed only for rules, which are not cached yet.
+   *
+   * @return Rule cache.
+   */
+  private RuleCache createRuleCache() {
+    return new RuleCache(
+        getSonarLintHome().resolve("rules"),
+        getRulesetVersion(),
+        () -> initializer.getInitializedApplicationContext().getBean(RulesRepository.class),
+        getConnectionId()
+    );
+  }
+
   /**
    * Initializes Sonarlint logging based on the configured log level.
    */
@@ -291,31 +825,150 @@ public class Main {
     sonarLintLogger.setLevel(configuration.logLevel());
   }
 
-  private void run(String... args) throws Exception {
-    if (args.length != 1) {
-      System.err.printf("Usage: java -jar %s <path to sonar-project.properties>", getJarName());
-      System.exit(1);
+  /**
+   * Prints usage information and terminates the application.
+   */
+  private void printUsageAndExit() {
+    System.err.printf("Usage: java -jar %s [--watch] [--files-from <file|->] [--jfr <file>] [--baseline <file>] [--write-baseline <file>] <path to sonar-project.properties>", getJarName());
+    System.exit(1);
+  }
+
+  /**
+   * Parses command line arguments.
+   *
+   * @param args command line arguments
+   */
+  private void parseArguments(String... args) {
+    for (var i = 0; i < args.length; i++) {
+      var arg = args[i];
+      if (arg.equals("--watch")) {
+        watch = true;
+      } else if (arg.equals("--files-from") && i + 1 < args.length) {
+        filesFrom = args[++i];
+      } else if (arg.equals("--jfr") && i + 1 < args.length) {
+        jfrFile = args[++i];
+      } else if (arg.equals("--baseline") && i + 1 < args.length) {
+        baselineFile = args[++i];
+      } else if (arg.equals("--write-baseline") && i + 1 < args.length) {
+        writeBaselineFile = args[++i];
+      } else if (arg.startsWith("--") || configurationFile != null) {
+        printUsageAndExit();
+      } else {
+        configurationFile = arg;
+      }
+    }
+    if (configurationFile == null) {
+      printUsageAndExit();
     }
-    parseConfiguration(args[0]);
+  }
+
+  /**
+   * Starts JFR recording with default settings (including GC and thread events) and all CLI events, if requested by the --jfr option.
+   * The recording is also dumped, when the JVM exits without calling {@link #stopRecording()} (e.g. when watch mode is terminated).
+   */
+  private void startRecording() throws IOException, ParseException {
+    if (jfrFile != null) {
+      recording = new Recording(jdk.jfr.Configuration.getConfiguration("default"));
+      recording.setName("SonarLint CLI");
+      recording.setDestination(Path.of(jfrFile));
+      recording.setDumpOnExit(true);
+      recording.start();
+    }
+  }
+
+  /**
+   * Stops JFR recording (if started) and writes it to the destination file.
+   */
+  private void stopRecording() {
+    if (recording != null) {
+      recording.stop();
+      recording.close();
+      recording = null;
+    }
+  }
+
+  /**
+   * Runs the whole CLI.
+   *
+   * @param args command line arguments
+   * @return Exit code.
+   */
+  private int run(String... args) throws Exception {
+    parseArguments(args);
+    startRecording();
+    var phase = PhaseEvent.start("parseConfiguration");
+    parseConfiguration(configurationFile);
     client = new SonarLintCliRpcClient(configuration.projectBaseDir(), configuration.token());
+    if (isIssueBudgetEnabled()) {
+      client.setIssueBudget(new IssueBudget(configuration.issueBudget()));
+    }
+    client.setBranch(getBranch());
     initializeLogging();
+    phase.commit();
+
+    phase = PhaseEvent.start("synchronizeConfiguration");
     synchronizeConfiguration();
+    phase.commit();
+
+    phase = PhaseEvent.start("getInputFiles");
     getInputFiles();
+    phase.commit();
+
+    phase = PhaseEvent.start("analyze");
     analyze();
-    new TeamCity(initializer.getInitializedApplicationContext().getBean(RulesRepository.class), configuration).reportIssues(client.getIssues());
+    phase.commit();
+
+    phase = PhaseEvent.start("report");
+    var exceededIssueBudget = client.getExceededIssueBudget();
+    if (exceededIssueBudget != null) {
+      // The analysis was cancelled, so report also issues, which have not been published as final
+      client.mergeIntermediateIssues();
+    }
+    var reporter = new TeamCity(createRuleCache(), configuration, baselineFile == null ? null : Baseline.read(Path.of(baselineFile)), watch);
+    if (writeBaselineFile != null) {
+      if (exceededIssueBudget == null) {
+        Baseline.create(Path.of(configuration.projectBaseDir()), client.getIssues()).write(Path.of(writeBaselineFile));
+      } else {
+        // Files not analyzed before the analysis was stopped would have no findings in the baseline, so all their findings would be reported as new later
+        reporter.reportWarning("Baseline " + writeBaselineFile + " was not written, because the analysis was stopped");
+      }
+    }
+    reporter.reportIssues(client.getIssues());
+    reporter.reportSkippedFiles(skippedFiles);
+    for (var timedOutFile : timedOutFiles) {
+      reporter.reportWarning("Analysis of " + Path.of(configuration.projectBaseDir()).relativize(timedOutFile) + " exceeded time limit of "
+          + configuration.fileTimeout() + " seconds, the file is skipped until it is changed");
+    }
+    if (exceededIssueBudget != null) {
+      reporter.reportBuildProblem("Issue budget exceeded (" + exceededIssueBudget + "), analysis was stopped");
+      phase.commit();
+      return EXIT_CODE_ISSUE_BUDGET_EXCEEDED;
+    }
+    phase.commit();
+
+    if (watch) {
+      watch(reporter);
+    }
+    phase = PhaseEvent.start("close");
     initializer.close();
+    phase.commit();
+    return 0;
   }
 
   public static void main(String... args) {
+    var main = new Main();
+    var exitCode = 0;
     try {
-      new Main().run(args);
+      exitCode = main.run(args);
     } catch (Exception e) {
       // We need to catch any exception, so that we can explicitly terminate the application (without termination, the engine keeps running in the background)
       //noinspection CallToPrintStackTrace we need to print stack trace manually before exiting
       e.printStackTrace();
+      main.stopRecording();
       System.exit(1);
     }
+    main.stopRecording();
     // The engine sometimes keeps running in a separate thread, so we have to force exit here
-    System.exit(0);
+    System.exit(exitCode);
   }
 }
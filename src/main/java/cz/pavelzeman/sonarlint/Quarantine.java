@@ -0,0 +1,182 @@
+package cz.pavelzeman.sonarlint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Persistent list of files, whose analysis exceeded the time limit. Quarantined files are skipped until their content changes.
+ * <p>
+ * It also keeps a list of suspect files, i.e. files of a batch, which exceeded the time limit and could not be cancelled. The file exceeding the limit
+ * cannot be identified in such case, so suspect files are analyzed one by one by the next run and they are either quarantined or released.
+ */
+public class Quarantine {
+
+  /** File with quarantined files. Keys are file URIs, values are hashes of file content at the time the file was quarantined. */
+  private final Path quarantineFile;
+
+  /** File with suspect files. Keys are file URIs, values are not used. */
+  private final Path suspectFile;
+
+  private final Properties files;
+
+  private final Properties suspects;
+
+  /** True, if there are changes not stored in the quarantine and suspect files yet. */
+  private boolean modified;
+
+  /**
+   * Creates quarantine stored in given directory.
+   *
+   * @param directory directory with quarantine and suspect files
+   */
+  public Quarantine(Path directory) {
+    quarantineFile = directory.resolve("quarantine.properties");
+    suspectFile = directory.resolve("suspects.properties");
+    files = load(quarantineFile);
+    suspects = load(suspectFile);
+  }
+
+  /**
+   * Loads properties from given file.
+   *
+   * @param file file to load
+   * @return Loaded properties, empty if the file does not exist.
+   */
+  private static Properties load(Path file) {
+    var result = new Properties();
+    if (Files.exists(file)) {
+      try (var inputStream = Files.newInputStream(file)) {
+        result.load(inputStream);
+      } catch (IOException e) {
+        throw new SonarLintException("Error when reading quarantine file " + file, e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks, whether given file is quarantined. If the file content has changed since it was quarantined, the file is released from the quarantine.
+   *
+   * @param path file to check
+   * @return True, if the file is quarantined.
+   */
+  public boolean isQuarantined(Path path) {
+    var key = path.toUri().toString();
+    var hash = files.getProperty(key);
+    if (hash == null) {
+      return false;
+    }
+    if (hash.equals(getHash(path))) {
+      return true;
+    }
+    files.remove(key);
+    modified = true;
+    return false;
+  }
+
+  /**
+   * Adds file to the quarantine.
+   *
+   * @param path file to add
+   */
+  public void add(Path path) {
+    var key = path.toUri().toString();
+    files.setProperty(key, getHash(path));
+    suspects.remove(key);
+    modified = true;
+  }
+
+  /**
+   * Checks, whether given file is a suspect, i.e. it should be analyzed alone.
+   *
+   * @param path file to check
+   * @return True, if the file is a suspect.
+   */
+  public boolean isSuspect(Path path) {
+    return suspects.containsKey(path.toUri().toString());
+  }
+
+  /**
+   * Adds files to the list of suspects.
+   *
+   * @param paths files to add
+   */
+  public void addSuspects(Collection<Path> paths) {
+    for (var path : paths) {
+      suspects.setProperty(path.toUri().toString(), "");
+    }
+    modified = true;
+  }
+
+  /**
+   * Removes file from the list of suspects, because it was analyzed within the time limit.
+   *
+   * @param path file to remove
+   */
+  public void removeSuspect(Path path) {
+    if (suspects.remove(path.toUri().toString()) != null) {
+      modified = true;
+    }
+  }
+
+  /**
+   * Stores changes to the quarantine and suspect files.
+   */
+  public void save() {
+    if (!modified) {
+      return;
+    }
+    // Deleted files would stay in the list forever
+    suspects.keySet().removeIf(uri -> !Files.exists(Path.of(URI.create((String) uri))));
+    store(quarantineFile, files, "Files, whose analysis exceeded the time limit");
+    store(suspectFile, suspects, "Files, which should be analyzed alone, because their batch exceeded the time limit and could not be cancelled");
+    modified = false;
+  }
+
+  /**
+   * Stores properties to given file atomically.
+   *
+   * @param file target file
+   * @param properties properties to store
+   * @param comment comment written to the file
+   */
+  private static void store(Path file, Properties properties, String comment) {
+    try {
+      Files.createDirectories(file.getParent());
+      var tempFile = Files.createTempFile(file.getParent(), "quarantine", ".tmp");
+      try (var outputStream = Files.newOutputStream(tempFile)) {
+        properties.store(outputStream, comment);
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new SonarLintException("Error when writing quarantine file " + file, e);
+    }
+  }
+
+  /**
+   * Computes hash of file content.
+   *
+   * @param path file to compute hash for
+   * @return Hash as a hexadecimal string.
+   */
+  private static String getHash(Path path) {
+    try (var inputStream = new DigestInputStream(Files.newInputStream(path), MessageDigest.getInstance("SHA-256"))) {
+      inputStream.transferTo(OutputStream.nullOutputStream());
+      return HexFormat.of().formatHex(inputStream.getMessageDigest().digest());
+    } catch (IOException e) {
+      throw new SonarLintException("Error when reading file " + path, e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new SonarLintException("Error when computing file hash", e);
+    }
+  }
+}
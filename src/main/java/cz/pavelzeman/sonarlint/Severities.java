@@ -0,0 +1,58 @@
+package cz.pavelzeman.sonarlint;
+
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedFindingDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.ImpactSeverity;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+
+/**
+ * Conversion of finding severities, so that findings reported in standard experience mode and in MQR mode can be handled the same way.
+ */
+public class Severities {
+
+  private Severities() {
+  }
+
+  /**
+   * Gets severity of given finding. In MQR mode, the maximum impact severity is converted to the corresponding issue severity.
+   *
+   * @param finding finding to get severity of
+   * @return Issue severity.
+   */
+  public static IssueSeverity getSeverity(RaisedFindingDto finding) {
+    var severity = findSeverity(finding);
+    if (severity == null) {
+      throw new SonarLintException("Invalid issue severity (null)");
+    }
+    return severity;
+  }
+
+  /**
+   * Gets severity of given finding the same way as {@link #getSeverity(RaisedFindingDto)}, but does not fail, if the severity is not available.
+   *
+   * @param finding finding to get severity of
+   * @return Issue severity or null, if it is not available.
+   */
+  public static IssueSeverity findSeverity(RaisedFindingDto finding) {
+    var severityMode = finding.getSeverityMode();
+    IssueSeverity severity = null;
+    if (severityMode.isLeft()) {
+      severity = severityMode.getLeft().getSeverity();
+    } else if (severityMode.getRight().getImpacts() != null) {
+      // Convert maximum impact severity to issue severity
+      var maxImpactSeverity = ImpactSeverity.INFO;
+      for (var impact : severityMode.getRight().getImpacts()) {
+        if (impact.getImpactSeverity().ordinal() > maxImpactSeverity.ordinal()) {
+          maxImpactSeverity = impact.getImpactSeverity();
+        }
+      }
+      severity = switch (maxImpactSeverity) {
+        case BLOCKER -> IssueSeverity.BLOCKER;
+        case HIGH -> IssueSeverity.CRITICAL;
+        case MEDIUM -> IssueSeverity.MAJOR;
+        case LOW -> IssueSeverity.MINOR;
+        case INFO -> IssueSeverity.INFO;
+      };
+    }
+    return severity;
+  }
+}
@@ -1,7 +1,10 @@
 package cz.pavelzeman.sonarlint;
 
+import cz.pavelzeman.sonarlint.jfr.FindingsEvent;
+import cz.pavelzeman.sonarlint.jfr.ProgressEvent;
 import java.net.URI;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -14,6 +17,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -82,8 +86,26 @@ public class SonarLintCliRpcClient implements SonarLintRpcClient, LogOutput {
   /** IDs of finished progress tasks, so that we can wait for them. */
   private final Set<String> finishedProgressTaskIds = new HashSet<>();
 
-  /** Map of raised issues indexed by file URI. */
-  private final Map<URI, Collection<RaisedFindingDto>> issues = new HashMap<>();
+  /** Raised issues and hotspots. */
+  private final FindingStore issues = new FindingStore();
+
+  /** Issues from intermediate publications indexed by file URI. They are replaced by issues from the final publication. */
+  private final Map<URI, Collection<RaisedFindingDto>> intermediateIssues = new HashMap<>();
+
+  /** Hotspots from intermediate publications indexed by file URI. They are replaced by hotspots from the final publication. */
+  private final Map<URI, Collection<RaisedFindingDto>> intermediateHotspots = new HashMap<>();
+
+  /** True, if intermediate findings were merged, so that publications of the cancelled analysis are ignored. */
+  private boolean findingsClosed;
+
+  /** Maximum allowed number of issues, null if not limited. */
+  private IssueBudget issueBudget;
+
+  /** Description of the exceeded issue budget limit, null if not exceeded. */
+  private volatile String exceededIssueBudget;
+
+  /** Name of the analyzed branch, null if not known. */
+  private String branch;
 
   private final String projectBaseDir;
 
@@ -94,10 +116,60 @@ public class SonarLintCliRpcClient implements SonarLintRpcClient, LogOutput {
     this.token = token;
   }
 
-  public Map<URI, Collection<RaisedFindingDto>> getIssues() {
+  public FindingStore getIssues() {
     return issues;
   }
 
+  /**
+   * Sets maximum allowed number of issues. When it is exceeded, {@link #waitForProgress(String, Duration)} returns immediately, so that the analysis can be cancelled.
+   *
+   * @param issueBudget issue budget
+   */
+  public void setIssueBudget(IssueBudget issueBudget) {
+    this.issueBudget = issueBudget;
+  }
+
+  /**
+   * Sets name of the analyzed branch. When the branch exists on the server, its configuration and findings are used for the analysis.
+   *
+   * @param branch branch name, null if not known (main branch is used)
+   */
+  public void setBranch(String branch) {
+    this.branch = branch;
+  }
+
+  /**
+   * Gets description of the exceeded issue budget limit.
+   *
+   * @return Description of the exceeded limit or null, if the budget is not exceeded.
+   */
+  public String getExceededIssueBudget() {
+    return exceededIssueBudget;
+  }
+
+  /**
+   * Adds issues and hotspots from intermediate publications to {@link #getIssues()}. This is used, when the analysis is cancelled and there will be no final
+   * publication. Any later publication is ignored, so that the findings are not modified while they are reported and no finding is added twice.
+   */
+  public synchronized void mergeIntermediateIssues() {
+    intermediateIssues.forEach(issues::add);
+    intermediateIssues.clear();
+    intermediateHotspots.forEach(issues::add);
+    intermediateHotspots.clear();
+    findingsClosed = true;
+  }
+
+  /**
+   * Removes all issues of given files, typically before the files are analyzed again.
+   *
+   * @param fileUris URIs of files to remove issues for
+   */
+  public synchronized void removeIssues(Collection<URI> fileUris) {
+    fileUris.forEach(issues::remove);
+    intermediateIssues.keySet().removeAll(fileUris);
+    intermediateHotspots.keySet().removeAll(fileUris);
+  }
+
   @Override
   public void log(LogParams params) {
     var localLogger = LoggerFactory.getLogger(params.getLoggerName());
@@ -126,14 +198,21 @@ public class SonarLintCliRpcClient implements SonarLintRpcClient, LogOutput {
   @Override
   @SuppressWarnings("java:S2446") // notify is correct here, there is just a single waiting thread
   public synchronized void reportProgress(ReportProgressParams params) {
+    var event = new ProgressEvent();
+    event.taskId = params.getTaskId();
     if (params.getNotification().isLeft()) {
       var updateNotification = params.getNotification().getLeft();
       logger.info("Progress id {} status {} message {}", params.getTaskId(), updateNotification.getPercentage(), updateNotification.getMessage());
+      event.percentage = updateNotification.getPercentage() == null ? -1 : updateNotification.getPercentage();
+      event.message = updateNotification.getMessage();
     } else {
       finishedProgressTaskIds.add(params.getTaskId());
       logger.info("Progress id {} ended", params.getTaskId());
+      event.percentage = 100;
+      event.finished = true;
       notify();
     }
+    event.commit();
   }
 
   /**
@@ -142,15 +221,56 @@ public class SonarLintCliRpcClient implements SonarLintRpcClient, LogOutput {
    * @param taskId task ID
    */
   public synchronized void waitForProgress(String taskId) {
+    waitForProgress(taskId, null);
+  }
+
+  /**
+   * Waits for given progress task to finish, but at most for given time.
+   *
+   * @param taskId task ID
+   * @param timeout maximum time to wait, null to wait without time limit
+   * @return True, if the task finished, false, if the timeout elapsed or the issue budget was exceeded.
+   */
+  public synchronized boolean waitForProgress(String taskId, @Nullable Duration timeout) {
+    return waitForProgress(taskId, timeout, true);
+  }
+
+  /**
+   * Waits for given progress task to finish, but at most for given time. Unlike {@link #waitForProgress(String, Duration)}, it waits even if the issue budget
+   * is exceeded. This is used to wait for a cancelled task to stop.
+   *
+   * @param taskId task ID
+   * @param timeout maximum time to wait
+   * @return True, if the task finished, false, if the timeout elapsed.
+   */
+  public synchronized boolean waitForProgressEnd(String taskId, Duration timeout) {
+    return waitForProgress(taskId, timeout, false);
+  }
+
+  private boolean waitForProgress(String taskId, @Nullable Duration timeout, boolean checkIssueBudget) {
+    var deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
     while (!finishedProgressTaskIds.contains(taskId)) {
+      if (checkIssueBudget && exceededIssueBudget != null) {
+        // The analysis is going to be cancelled, so there is no need to wait for it
+        return false;
+      }
       try {
-        wait();
+        if (timeout == null) {
+          wait();
+        } else {
+          var remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (remainingMillis <= 0) {
+            return false;
+          }
+          wait(remainingMillis);
+        }
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         throw new SonarLintException("Interrupted while waiting for progress " + taskId, e);
       }
     }
     finishedProgressTaskIds.remove(taskId);
+    return true;
   }
 
   @Override
@@ -181,6 +301,13 @@ public class SonarLintCliRpcClient implements SonarLintRpcClient, LogOutput {
 
   @Override
   public CompletableFuture<MatchSonarProjectBranchResponse> matchSonarProjectBranch(MatchSonarProjectBranchParams params) {
+    if (branch != null && params.getAllSonarBranchesNames().contains(branch)) {
+      return getCompletedFuture(new MatchSonarProjectBranchResponse(branch));
+    }
+    if (branch != null) {
+      // Typically a new feature branch, which has not been analyzed by the server yet
+      logger.info("Branch {} not found on the server, using main branch {}", branch, params.getMainSonarBranchName());
+    }
     return getCompletedFuture(new MatchSonarProjectBranchResponse(params.getMainSonarBranchName()));
   }
 
@@ -206,29 +333,62 @@ public class SonarLintCliRpcClient implements SonarLintRpcClient, LogOutput {
   }
 
   @Override
-  public void raiseHotspots(RaiseHotspotsParams params) {
-    for (var hotspotEntry : params.getHotspotsByFileUri().entrySet()) {
-      var fileUri = hotspotEntry.getKey();
-      var fileIssues = hotspotEntry.getValue();
-      // Input parameters contain all files regardless of whether there are issues in them or not
-      if (!fileIssues.isEmpty()) {
-        var existingIssues = issues.computeIfAbsent(fileUri, k -> new ArrayList<>());
-        existingIssues.addAll(hotspotEntry.getValue());
-      }
-    }
+  public synchronized void raiseHotspots(RaiseHotspotsParams params) {
+    raiseFindings(params.getHotspotsByFileUri(), params.isIntermediatePublication(), intermediateHotspots,
+        issueBudget == null ? null : issueBudget::setHotspots, "hotspots");
   }
 
   @Override
-  public void raiseIssues(RaiseIssuesParams params) {
-    for (var issuesEntry : params.getIssuesByFileUri().entrySet()) {
-      var fileUri = issuesEntry.getKey();
-      var fileIssues = issuesEntry.getValue();
-      // Input parameters contain all files regardless of whether there are issues in them or not
-      if (!fileIssues.isEmpty()) {
-        var existingIssues = issues.computeIfAbsent(fileUri, k -> new ArrayList<>());
-        existingIssues.addAll(fileIssues);
+  public synchronized void raiseIssues(RaiseIssuesParams params) {
+    raiseFindings(params.getIssuesByFileUri(), params.isIntermediatePublication(), intermediateIssues,
+        issueBudget == null ? null : issueBudget::setIssues, "issues");
+  }
+
+  /**
+   * Processes published findings. Findings from the final publication are added to {@link #issues}, findings from intermediate publications are kept aside,
+   * until the final publication comes or they are merged by {@link #mergeIntermediateIssues()}.
+   *
+   * @param findingsByFileUri published findings indexed by file URI, all analyzed files are present regardless of whether they have findings or not
+   * @param intermediate true for intermediate publication, which contains all findings of the file found so far
+   * @param intermediateFindings findings from intermediate publications of the same kind
+   * @param budgetUpdater function to update the issue budget, null if the budget is not checked
+   * @param kind kind of findings for the finding event
+   */
+  @SuppressWarnings("java:S2446") // notify is correct here, there is just a single waiting thread
+  private void raiseFindings(Map<URI, ? extends Collection<? extends RaisedFindingDto>> findingsByFileUri, boolean intermediate,
+      Map<URI, Collection<RaisedFindingDto>> intermediateFindings, @Nullable BiConsumer<URI, Collection<? extends RaisedFindingDto>> budgetUpdater,
+      String kind) {
+    if (findingsClosed) {
+      logger.debug("Ignoring {} of {} files published after the analysis was stopped", kind, findingsByFileUri.size());
+      return;
+    }
+    var event = new FindingsEvent();
+    event.begin();
+    for (var findingsEntry : findingsByFileUri.entrySet()) {
+      var fileUri = findingsEntry.getKey();
+      var fileFindings = findingsEntry.getValue();
+      if (intermediate) {
+        intermediateFindings.put(fileUri, new ArrayList<>(fileFindings));
+      } else {
+        intermediateFindings.remove(fileUri);
+        issues.add(fileUri, fileFindings);
+      }
+      if (budgetUpdater != null) {
+        budgetUpdater.accept(fileUri, fileFindings);
       }
+      event.findings += fileFindings.size();
     }
+    if (budgetUpdater != null && exceededIssueBudget == null) {
+      exceededIssueBudget = issueBudget.getExceededLimit();
+      if (exceededIssueBudget != null) {
+        logger.info("Issue budget exceeded: {}", exceededIssueBudget);
+        notify();
+      }
+    }
+    event.kind = kind;
+    event.files = findingsByFileUri.size();
+    event.intermediate = intermediate;
+    event.commit();
   }
 
   /**
@@ -322,7 +482,7 @@ public class SonarLintCliRpcClient implements SonarLintRpcClient, LogOutput {
 
   @Override
   public void didChangeMatchedSonarProjectBranch(@NotNull DidChangeMatchedSonarProjectBranchParams params) {
-    throw new UnsupportedOperationException();
+    logger.info("Using server branch {}", params.getNewMatchedBranchName());
   }
   @Override
   public void didChangeTaintVulnerabilities(@NotNull DidChangeTaintVulnerabilitiesParams params) {
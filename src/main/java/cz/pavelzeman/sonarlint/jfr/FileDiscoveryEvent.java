@@ -0,0 +1,31 @@
+package cz.pavelzeman.sonarlint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event representing discovery of files to analyze in a single root directory.
+ */
+@Name("cz.pavelzeman.sonarlint.FileDiscovery")
+@Label("File Discovery")
+@Description("Discovery of files to analyze in a source or test directory")
+@Category("SonarLint CLI")
+@StackTrace(false)
+public class FileDiscoveryEvent extends Event {
+
+  @Label("Root")
+  @Description("Root directory or file list")
+  public String root;
+
+  @Label("Type")
+  @Description("Type of files (MAIN or TEST)")
+  public String type;
+
+  @Label("Files")
+  @Description("Number of files accepted for analysis")
+  public int files;
+}
@@ -0,0 +1,35 @@
+package cz.pavelzeman.sonarlint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event representing a batch of findings (issues or hotspots) raised by the analysis engine. Duration of the event is the time spent processing the batch.
+ */
+@Name("cz.pavelzeman.sonarlint.Findings")
+@Label("Findings Batch")
+@Description("Batch of issues or hotspots raised by the analysis engine")
+@Category("SonarLint CLI")
+@StackTrace(false)
+public class FindingsEvent extends Event {
+
+  @Label("Kind")
+  @Description("Kind of findings (issues or hotspots)")
+  public String kind;
+
+  @Label("Files")
+  @Description("Number of files in the batch")
+  public int files;
+
+  @Label("Findings")
+  @Description("Number of findings in the batch")
+  public int findings;
+
+  @Label("Intermediate")
+  @Description("True, if this is an intermediate publication")
+  public boolean intermediate;
+}
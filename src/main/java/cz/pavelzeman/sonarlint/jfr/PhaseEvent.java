@@ -0,0 +1,35 @@
+package cz.pavelzeman.sonarlint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event representing a single phase of the CLI run (e.g. configuration synchronization or analysis).
+ */
+@Name("cz.pavelzeman.sonarlint.Phase")
+@Label("CLI Phase")
+@Description("Phase of the SonarLint CLI run")
+@Category("SonarLint CLI")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+  @Label("Phase")
+  public String phase;
+
+  /**
+   * Creates and starts the event.
+   *
+   * @param phase phase name
+   * @return Started event, call {@link #commit()} when the phase is finished.
+   */
+  public static PhaseEvent start(String phase) {
+    var event = new PhaseEvent();
+    event.phase = phase;
+    event.begin();
+    return event;
+  }
+}
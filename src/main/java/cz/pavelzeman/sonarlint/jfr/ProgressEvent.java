@@ -0,0 +1,33 @@
+package cz.pavelzeman.sonarlint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event representing a progress update reported by the analysis engine.
+ */
+@Name("cz.pavelzeman.sonarlint.Progress")
+@Label("Progress Update")
+@Description("Progress update of a task running in the analysis engine")
+@Category("SonarLint CLI")
+@StackTrace(false)
+public class ProgressEvent extends Event {
+
+  @Label("Task ID")
+  public String taskId;
+
+  @Label("Percentage")
+  @Description("Percentage of completion, -1 if unknown")
+  public int percentage;
+
+  @Label("Message")
+  public String message;
+
+  @Label("Finished")
+  @Description("True, if the task has finished")
+  public boolean finished;
+}
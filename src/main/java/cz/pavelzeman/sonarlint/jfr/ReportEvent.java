@@ -0,0 +1,30 @@
+package cz.pavelzeman.sonarlint.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event representing output of findings by a reporter, including flushing of the output.
+ */
+@Name("cz.pavelzeman.sonarlint.Report")
+@Label("Report Flush")
+@Description("Output of findings by a reporter")
+@Category("SonarLint CLI")
+@StackTrace(false)
+public class ReportEvent extends Event {
+
+  @Label("Reporter")
+  public String reporter;
+
+  @Label("Files")
+  @Description("Number of reported files")
+  public int files;
+
+  @Label("Findings")
+  @Description("Number of reported findings")
+  public int findings;
+}
@@ -0,0 +1,172 @@
+package cz.pavelzeman.sonarlint.reporter;
+
+import cz.pavelzeman.sonarlint.FindingStore;
+import cz.pavelzeman.sonarlint.SonarLintException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Multiset of fingerprints of known findings. Findings present in the baseline are not reported, so that only new findings are output on legacy code bases.
+ * Identical findings in a single file (e.g. repeated empty blocks) have the same fingerprint, so the baseline stores number of findings with each fingerprint
+ * and suppresses at most that many findings.
+ * <p>
+ * Fingerprint of a finding is a 64-bit hash of its rule key, file path relative to the project base directory and the content of its text range
+ * (with all whitespace removed). It does not include line numbers, so that findings are matched even if the code is moved within the file.
+ */
+public class Baseline {
+
+  /** Magic number identifying baseline files. */
+  private static final int MAGIC = 0x534c424c;
+
+  /** Number of known findings indexed by fingerprint. */
+  private final LongIntHashMap fingerprints;
+
+  public Baseline(LongIntHashMap fingerprints) {
+    this.fingerprints = fingerprints;
+  }
+
+  /**
+   * Creates baseline containing all given findings.
+   *
+   * @param rootPath project base directory
+   * @param findings findings to include
+   * @return Baseline.
+   */
+  public static Baseline create(Path rootPath, FindingStore findings) {
+    var fingerprints = new LongIntHashMap(findings.size());
+    for (var fileUri : findings.getFiles()) {
+      for (var fingerprint : computeFingerprints(rootPath, fileUri, findings)) {
+        fingerprints.increment(fingerprint);
+      }
+    }
+    return new Baseline(fingerprints);
+  }
+
+  /**
+   * Reads baseline from given file.
+   *
+   * @param file baseline file
+   * @return Baseline.
+   */
+  public static Baseline read(Path file) {
+    try (var inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (inputStream.readInt() != MAGIC) {
+        throw new SonarLintException("Invalid baseline file " + file);
+      }
+      var count = inputStream.readInt();
+      var fingerprints = new LongIntHashMap(count);
+      // Fingerprint of each finding is stored separately, so identical findings are stored multiple times
+      for (var i = 0; i < count; i++) {
+        fingerprints.increment(inputStream.readLong());
+      }
+      return new Baseline(fingerprints);
+    } catch (IOException e) {
+      throw new SonarLintException("Error when reading baseline file " + file, e);
+    }
+  }
+
+  /**
+   * Writes baseline to given file.
+   *
+   * @param file baseline file
+   */
+  public void write(Path file) {
+    try (var outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      outputStream.writeInt(MAGIC);
+      var total = new int[1];
+      fingerprints.forEach((fingerprint, count) -> total[0] += count);
+      outputStream.writeInt(total[0]);
+      fingerprints.forEach((fingerprint, count) -> {
+        try {
+          for (var i = 0; i < count; i++) {
+            outputStream.writeLong(fingerprint);
+          }
+        } catch (IOException e) {
+          throw new SonarLintException("Error when writing baseline file " + file, e);
+        }
+      });
+    } catch (IOException e) {
+      throw new SonarLintException("Error when writing baseline file " + file, e);
+    }
+  }
+
+  /**
+   * Gets number of known findings with given fingerprint.
+   *
+   * @param fingerprint fingerprint to check
+   * @return Number of findings, 0 if the fingerprint is not present.
+   */
+  public int getCount(long fingerprint) {
+    return fingerprints.get(fingerprint);
+  }
+
+  /**
+   * Computes fingerprints of all findings in a single file. The file is read just once.
+   *
+   * @param rootPath project base directory
+   * @param fileUri file URI
+   * @param findings finding store containing findings of the file
+   * @return Fingerprints in the same order as the findings are iterated by {@link FindingStore#forEachFinding(URI, java.util.function.Consumer)}.
+   */
+  public static long[] computeFingerprints(Path rootPath, URI fileUri, FindingStore findings) {
+    if (findings.getFindingCount(fileUri) == 0) {
+      // The file does not need to be read, it may not even exist anymore
+      return new long[0];
+    }
+    var filePath = Path.of(fileUri);
+    String[] lines;
+    try {
+      lines = new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8).split("\r\n|\r|\n", -1);
+    } catch (IOException e) {
+      throw new SonarLintException("Error when reading file " + filePath, e);
+    }
+    // Use forward slashes, so that the baseline can be shared between operating systems
+    var relativePath = rootPath.relativize(filePath).toString().replace('\\', '/');
+    var result = new long[findings.getFindingCount(fileUri)];
+    var index = new int[1];
+    findings.forEachFinding(fileUri, finding -> {
+      // File-level findings have no text range, use their message instead
+      var content = !finding.hasTextRange() ? finding.getPrimaryMessage()
+          : getContent(lines, finding.getStartLine(), finding.getStartLineOffset(), finding.getEndLine(), finding.getEndLineOffset());
+      result[index[0]++] = hash(finding.getRuleKey() + '\0' + relativePath + '\0' + content.replaceAll("\\s+", ""));
+    });
+    return result;
+  }
+
+  /**
+   * Gets content of given text range. Lines are numbered from 1, offsets from 0. Out of range values are clamped, so that the content of a changed file can be
+   * still computed.
+   */
+  private static String getContent(String[] lines, int startLine, int startLineOffset, int endLine, int endLineOffset) {
+    var content = new StringBuilder();
+    for (var line = Math.max(startLine, 1); line <= Math.min(endLine, lines.length); line++) {
+      var text = lines[line - 1];
+      var start = line == startLine ? Math.min(startLineOffset, text.length()) : 0;
+      var end = line == endLine ? Math.min(endLineOffset, text.length()) : text.length();
+      if (start < end) {
+        content.append(text, start, end);
+      }
+      content.append('\n');
+    }
+    return content.toString();
+  }
+
+  private static long hash(String value) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(digest).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new SonarLintException("Error when computing fingerprint", e);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package cz.pavelzeman.sonarlint.reporter;
+
+/**
+ * Compact hash map of primitive long keys to int counts using open addressing with linear probing. Compared to {@code HashMap<Long, Integer>}, it needs about
+ * 24 bytes per key instead of about 80 and it does not create any garbage, so it can hold millions of keys.
+ */
+public class LongIntHashMap {
+
+  /** Key used to mark empty slots. Count of the key itself is tracked separately in {@link #emptyKeyCount}. */
+  private static final long EMPTY = 0;
+
+  private long[] keys;
+
+  private int[] counts;
+
+  /** Number of keys stored in {@link #keys}. */
+  private int size;
+
+  private int emptyKeyCount;
+
+  /**
+   * Creates the map.
+   *
+   * @param expectedSize expected number of keys, the map is resized automatically if more keys are added
+   */
+  public LongIntHashMap(int expectedSize) {
+    // Keep load factor at most 0.5 to make probe sequences short
+    var capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+    keys = new long[capacity];
+    counts = new int[capacity];
+  }
+
+  /**
+   * Increments count of given key. Keys, which are not present, have count 0.
+   *
+   * @param key key to increment count of
+   * @return New count of the key.
+   */
+  public int increment(long key) {
+    if (key == EMPTY) {
+      return ++emptyKeyCount;
+    }
+    if ((size + 1) * 2 > keys.length) {
+      resize();
+    }
+    var index = findSlot(key);
+    if (keys[index] == EMPTY) {
+      keys[index] = key;
+      size++;
+    }
+    return ++counts[index];
+  }
+
+  /**
+   * Gets count of given key.
+   *
+   * @param key key to get count of
+   * @return Count of the key, 0 if the key is not present.
+   */
+  public int get(long key) {
+    if (key == EMPTY) {
+      return emptyKeyCount;
+    }
+    var index = findSlot(key);
+    return keys[index] == EMPTY ? 0 : counts[index];
+  }
+
+  /**
+   * Gets number of keys in the map.
+   *
+   * @return Number of keys (not the sum of their counts).
+   */
+  public int size() {
+    return size + (emptyKeyCount > 0 ? 1 : 0);
+  }
+
+  /**
+   * Passes all keys with their counts to given consumer (in no particular order).
+   *
+   * @param consumer key and count consumer
+   */
+  public void forEach(KeyCountConsumer consumer) {
+    if (emptyKeyCount > 0) {
+      consumer.accept(EMPTY, emptyKeyCount);
+    }
+    for (var i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY) {
+        consumer.accept(keys[i], counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Finds slot of given key.
+   *
+   * @return Index of the slot containing the key or of the empty slot, where the key should be stored.
+   */
+  private int findSlot(long key) {
+    var mask = keys.length - 1;
+    var index = mix(key) & mask;
+    while (keys[index] != EMPTY && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private void resize() {
+    var oldKeys = keys;
+    var oldCounts = counts;
+    keys = new long[oldKeys.length * 2];
+    counts = new int[oldKeys.length * 2];
+    for (var i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        var index = findSlot(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        counts[index] = oldCounts[i];
+      }
+    }
+  }
+
+  /**
+   * Mixes bits of the key, so that keys differing only in high bits do not end up in the same slot.
+   */
+  private static int mix(long key) {
+    var hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  /**
+   * Consumer of keys with their counts.
+   */
+  @FunctionalInterface
+  public interface KeyCountConsumer {
+
+    void accept(long key, int count);
+  }
+}
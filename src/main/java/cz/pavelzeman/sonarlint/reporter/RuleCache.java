@@ -0,0 +1,167 @@
+package cz.pavelzeman.sonarlint.reporter;
+
+import cz.pavelzeman.sonarlint.SonarLintException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.sonarlint.core.repository.rules.RulesRepository;
+import org.sonarsource.sonarlint.core.rule.extractor.SonarLintRuleDefinition;
+
+/**
+ * Persistent cache of rule definitions already rendered for the report output. There is a separate cache directory for each connection and a separate
+ * cache file for each ruleset version, so the cache is automatically invalidated, when the analyzers change on the server. The rules repository is only
+ * accessed for rules, which are not cached yet.
+ */
+public class RuleCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(RuleCache.class);
+
+  private static final String NAME_SUFFIX = ".name";
+  private static final String DESCRIPTION_SUFFIX = ".description";
+  private static final String TYPE_SUFFIX = ".type";
+
+  private static final String CACHE_FILE_EXTENSION = ".properties";
+
+  /** Minimum age of cache files of other ruleset versions, which are deleted. Younger files may be still used by concurrent runs (e.g. during server upgrade). */
+  private static final Duration STALE_CACHE_FILE_AGE = Duration.ofDays(1);
+
+  /** File with cached rules for the current ruleset version. */
+  private final Path cacheFile;
+
+  private final Supplier<RulesRepository> rulesRepositorySupplier;
+
+  private final String connectionId;
+
+  /** Cached rules, loaded lazily on first access. */
+  private Properties cachedRules;
+
+  /** True, if there are rules not stored in the cache file yet. */
+  private boolean modified;
+
+  /**
+   * Creates the cache.
+   *
+   * @param cacheDirectory directory with cache directories of all connections
+   * @param rulesetVersion version of the ruleset (typically a hash of the analyzers used), used to select the cache file
+   * @param rulesRepositorySupplier supplier of rules repository used for rules not found in the cache
+   * @param connectionId connection ID used to get rules from rules repository and to select the cache directory
+   */
+  public RuleCache(Path cacheDirectory, String rulesetVersion, Supplier<RulesRepository> rulesRepositorySupplier, String connectionId) {
+    this.cacheFile = getConnectionCacheDirectory(cacheDirectory, connectionId).resolve(rulesetVersion + CACHE_FILE_EXTENSION);
+    this.rulesRepositorySupplier = rulesRepositorySupplier;
+    this.connectionId = connectionId;
+  }
+
+  /**
+   * Gets rendered rule from the cache. If the rule is not cached yet, it is read from the rules repository, rendered and added to the cache.
+   *
+   * @param ruleKey rule key (e.g. javascript:S1234)
+   * @param renderer function converting rule definition to rendered rule
+   * @return Rendered rule.
+   */
+  public CachedRule getRule(String ruleKey, Function<SonarLintRuleDefinition, CachedRule> renderer) {
+    var rules = getCachedRules();
+    var name = rules.getProperty(ruleKey + NAME_SUFFIX);
+    if (name != null) {
+      return new CachedRule(name, rules.getProperty(ruleKey + DESCRIPTION_SUFFIX), rules.getProperty(ruleKey + TYPE_SUFFIX));
+    }
+    var definition = rulesRepositorySupplier.get().getRule(connectionId, ruleKey)
+        .orElseThrow(() -> new SonarLintException("Rule not found: " + ruleKey));
+    var rule = renderer.apply(definition);
+    rules.setProperty(ruleKey + NAME_SUFFIX, rule.name());
+    rules.setProperty(ruleKey + DESCRIPTION_SUFFIX, rule.description());
+    rules.setProperty(ruleKey + TYPE_SUFFIX, rule.type());
+    modified = true;
+    return rule;
+  }
+
+  /**
+   * Stores newly added rules to the cache file. The file is replaced atomically, so that concurrent runs never see a partially written file.
+   * Old cache files of other ruleset versions of the same connection are deleted, because they are not used anymore.
+   */
+  public void save() {
+    if (!modified) {
+      return;
+    }
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      var tempFile = Files.createTempFile(cacheFile.getParent(), "rules", ".tmp");
+      try (var outputStream = Files.newOutputStream(tempFile)) {
+        cachedRules.store(outputStream, null);
+      }
+      Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      modified = false;
+    } catch (IOException e) {
+      throw new SonarLintException("Error when writing rule cache " + cacheFile, e);
+    }
+    deleteStaleCacheFiles();
+  }
+
+  /**
+   * Deletes cache files of other ruleset versions, which were not modified for {@link #STALE_CACHE_FILE_AGE}. Failures are only logged,
+   * because stale files do not affect the report.
+   */
+  private void deleteStaleCacheFiles() {
+    var minModified = Instant.now().minus(STALE_CACHE_FILE_AGE);
+    try (var staleFiles = Files.newDirectoryStream(cacheFile.getParent(), path -> path.getFileName().toString().endsWith(CACHE_FILE_EXTENSION)
+        && !path.equals(cacheFile) && Files.getLastModifiedTime(path).toInstant().isBefore(minModified))) {
+      for (var staleFile : staleFiles) {
+        logger.debug("Deleting stale rule cache {}", staleFile);
+        Files.deleteIfExists(staleFile);
+      }
+    } catch (IOException e) {
+      logger.warn("Error when deleting stale rule cache files in {}", cacheFile.getParent(), e);
+    }
+  }
+
+  /**
+   * Gets directory with cache files of given connection. Its name is a hash of the connection ID, which can contain characters not allowed in file names.
+   *
+   * @param cacheDirectory directory with cache directories of all connections
+   * @param connectionId connection ID
+   * @return Cache directory of the connection.
+   */
+  static Path getConnectionCacheDirectory(Path cacheDirectory, String connectionId) {
+    try {
+      return cacheDirectory.resolve(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(connectionId.getBytes(StandardCharsets.UTF_8))));
+    } catch (NoSuchAlgorithmException e) {
+      throw new SonarLintException("Error when computing hash", e);
+    }
+  }
+
+  private Properties getCachedRules() {
+    if (cachedRules == null) {
+      cachedRules = new Properties();
+      if (Files.exists(cacheFile)) {
+        try (var inputStream = Files.newInputStream(cacheFile)) {
+          cachedRules.load(inputStream);
+        } catch (IOException e) {
+          throw new SonarLintException("Error when reading rule cache " + cacheFile, e);
+        }
+      }
+    }
+    return cachedRules;
+  }
+
+  /**
+   * Rule rendered for the report output.
+   *
+   * @param name rendered rule name
+   * @param description rendered rule description
+   * @param type rule type
+   */
+  public record CachedRule(String name, String description, String type) {
+  }
+}
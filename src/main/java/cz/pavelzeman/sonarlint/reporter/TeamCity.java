@@ -1,19 +1,23 @@
 package cz.pavelzeman.sonarlint.reporter;
 
+import cz.pavelzeman.sonarlint.AnalysisFileFilter.SkipReason;
 import cz.pavelzeman.sonarlint.Configuration;
+import cz.pavelzeman.sonarlint.FindingStore;
+import cz.pavelzeman.sonarlint.FindingStore.Finding;
 import cz.pavelzeman.sonarlint.SonarLintException;
+import cz.pavelzeman.sonarlint.jfr.ReportEvent;
+import cz.pavelzeman.sonarlint.reporter.RuleCache.CachedRule;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import org.sonarsource.sonarlint.core.repository.rules.RulesRepository;
-import org.sonarsource.sonarlint.core.rpc.protocol.backend.rules.ImpactDto;
-import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedFindingDto;
-import org.sonarsource.sonarlint.core.rpc.protocol.common.ImpactSeverity;
-import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
 /**
@@ -22,17 +26,35 @@ import org.springframework.util.StringUtils;
 @SuppressWarnings("java:S106") // Report is generated to standard output, so using standard output is necessary
 public class TeamCity {
 
-  private final RulesRepository rulesRepository;
+  private static final Logger logger = LoggerFactory.getLogger(TeamCity.class);
+
+  private final RuleCache ruleCache;
 
   private final Configuration configuration;
 
+  /** Known findings, which are not reported, null to report all findings. */
+  private final Baseline baseline;
+
   /** Set of all violated rules indexed by rule key (e.g. javascript:S1234). */
   private final Set<String> ruleSet;
 
-  public TeamCity(RulesRepository rulesRepository, Configuration configuration) {
-    this.rulesRepository = rulesRepository;
+  /** Fingerprints of the last reported findings indexed by file URI, null if changes are not tracked. */
+  private final Map<URI, long[]> reportedFingerprints;
+
+  /**
+   * Creates the reporter.
+   *
+   * @param ruleCache cache of rendered rules
+   * @param configuration configuration
+   * @param baseline known findings, which are not reported, null to report all findings
+   * @param trackChanges true to remember reported findings, so that only their changes can be reported by {@link #reportIssueChanges(FindingStore, Collection)}
+   */
+  public TeamCity(RuleCache ruleCache, Configuration configuration, Baseline baseline, boolean trackChanges) {
+    this.ruleCache = ruleCache;
     this.configuration = configuration;
+    this.baseline = baseline;
     ruleSet = new HashSet<>();
+    reportedFingerprints = trackChanges ? new HashMap<>() : null;
   }
 
   /**
@@ -57,31 +79,11 @@ public class TeamCity {
   /**
    * Converts severity returned by Sonarlint to TeamCity severity.
    *
-   * @param severity severity in standard experience mode
-   * @param impacts list of impacts in MQR mode
+   * @param issue issue to get severity of
    * @return TeamCity severity.
    */
-  private String getSeverity(IssueSeverity severity, List<ImpactDto> impacts) {
-    if (impacts != null) {
-      // Convert maximum impact severity to issue severity
-      var maxImpactSeverity = ImpactSeverity.INFO;
-      for (var impact : impacts) {
-        if (impact.getImpactSeverity().ordinal() > maxImpactSeverity.ordinal()) {
-          maxImpactSeverity = impact.getImpactSeverity();
-        }
-      }
-      severity = switch (maxImpactSeverity) {
-        case BLOCKER -> IssueSeverity.BLOCKER;
-        case HIGH -> IssueSeverity.CRITICAL;
-        case MEDIUM -> IssueSeverity.MAJOR;
-        case LOW -> IssueSeverity.MINOR;
-        case INFO -> IssueSeverity.INFO;
-      };
-    }
-    if (severity == null) {
-      throw new SonarLintException("Invalid issue severity (null)");
-    }
-    return switch (severity) {
+  private String getSeverity(Finding issue) {
+    return switch (issue.getSeverity()) {
       case BLOCKER, CRITICAL -> "ERROR";
       case MAJOR -> "WARNING";
       case MINOR, INFO -> "WEAK WARNING";
@@ -89,46 +91,207 @@ public class TeamCity {
   }
 
   /**
-   * Outputs issues to standard output.
+   * Outputs issues to standard output. If there is a baseline, only issues not present in the baseline are output.
+   *
+   * @param issues store of issues
+   */
+  public void reportIssues(FindingStore issues) {
+    reportIssues(issues, issues.getFiles());
+  }
+
+  /**
+   * Outputs issues of given files to standard output. If there is a baseline, only issues not present in the baseline are output.
+   *
+   * @param issues store of issues
+   * @param fileUris URIs of files to output issues of
+   */
+  public void reportIssues(FindingStore issues, Collection<URI> fileUris) {
+    report(issues, fileUris, false);
+  }
+
+  /**
+   * Outputs changes of issues of given files since they were reported last time. New issues are output the same way as by
+   * {@link #reportIssues(FindingStore, Collection)}, resolved issues (including issues of deleted files) are summarized in a message for each file.
+   * This is used in watch mode, where the files are reported repeatedly. Changes must be tracked, see {@link #TeamCity(RuleCache, Configuration, Baseline, boolean)}.
    *
-   * @param issues map of issues
+   * @param issues store of issues
+   * @param fileUris URIs of changed files (including deleted files)
    */
-  public void reportIssues(Map<URI, Collection<RaisedFindingDto>> issues) {
+  public void reportIssueChanges(FindingStore issues, Collection<URI> fileUris) {
+    if (reportedFingerprints == null) {
+      throw new IllegalStateException("Changes of issues are not tracked");
+    }
+    report(issues, fileUris, true);
+  }
+
+  private void report(FindingStore issues, Collection<URI> fileUris, boolean changesOnly) {
+    var event = new ReportEvent();
+    event.begin();
     var rootPath = Path.of(configuration.projectBaseDir());
-    for (var issueEntry : issues.entrySet()) {
-      var fileUri = issueEntry.getKey();
-      var absoluteFilePath = Path.of(fileUri);
-      var relativeFilePath = rootPath.relativize(absoluteFilePath);
-      for (var issue : issueEntry.getValue()) {
-        reportIssue(issue, relativeFilePath);
+    var baselineIssues = new int[1];
+    for (var fileUri : fileUris) {
+      var relativeFilePath = rootPath.relativize(Path.of(fileUri));
+      var fingerprints = baseline == null && reportedFingerprints == null ? null : computeFingerprints(rootPath, fileUri, issues, changesOnly);
+      // Issues of a file, which cannot be read anymore, are not reported, the file is reported again after its change is detected
+      var fileIssueCount = fingerprints == null || fingerprints.length == issues.getFindingCount(fileUri) ? issues.getFindingCount(fileUri) : 0;
+      var previousFingerprints = changesOnly ? countFingerprints(reportedFingerprints.get(fileUri)) : null;
+      // Each known finding suppresses just one reported finding. Fingerprints contain file path, so it is enough to count matches per file.
+      var matchedBaselineFingerprints = new LongIntHashMap(fingerprints == null ? 0 : fingerprints.length);
+      var matchedPreviousFingerprints = new LongIntHashMap(fingerprints == null ? 0 : fingerprints.length);
+      var unchangedIssues = new int[1];
+      var index = new int[1];
+      issues.forEachFinding(fileUri, fileIssueCount == 0 ? issue -> { } : issue -> {
+        var fingerprint = fingerprints == null ? 0 : fingerprints[index[0]++];
+        // Baseline is matched first, so that the same issues are suppressed as in the full report
+        var inBaseline = baseline != null && isMatched(fingerprint, baseline.getCount(fingerprint), matchedBaselineFingerprints);
+        if (previousFingerprints != null && isMatched(fingerprint, previousFingerprints.get(fingerprint), matchedPreviousFingerprints)) {
+          unchangedIssues[0]++;
+        } else if (inBaseline) {
+          baselineIssues[0]++;
+        } else {
+          reportIssue(issue, relativeFilePath);
+          event.findings++;
+        }
+      });
+      if (fileIssueCount > 0) {
+        event.files++;
+      }
+      if (changesOnly) {
+        var resolvedIssues = reportedFingerprints.getOrDefault(fileUri, new long[0]).length - unchangedIssues[0];
+        if (resolvedIssues > 0) {
+          System.out.printf("##teamcity[message text='%s']%n", escapeString(resolvedIssues + " issues resolved in " + relativeFilePath
+              + (fileIssueCount == 0 ? ", no issues left" : "")));
+        }
+      }
+      if (reportedFingerprints != null) {
+        if (fingerprints.length == 0) {
+          reportedFingerprints.remove(fileUri);
+        } else {
+          reportedFingerprints.put(fileUri, fingerprints);
+        }
       }
     }
+    if (baselineIssues[0] > 0) {
+      System.out.printf("##teamcity[message text='%s']%n", escapeString(baselineIssues[0] + " issues present in the baseline were not reported"));
+    }
+    System.out.flush();
+    ruleCache.save();
+    event.reporter = "TeamCity";
+    event.commit();
   }
 
-  @SuppressWarnings("java:S2259") // issue.getTextRange() cannot be null, because we check for null just before using it
-  private void reportIssue(RaisedFindingDto issue, Path relativeFilePath) {
+  /**
+   * Computes fingerprints of issues of given file. When only changes are reported (in watch mode), the file may be changed or deleted after it was analyzed
+   * (e.g. by Git checkout). Such file is treated as if it had no issues, so that the reporting does not fail.
+   *
+   * @param rootPath project base directory
+   * @param fileUri file URI
+   * @param issues store of issues
+   * @param changesOnly true, if only changes are reported
+   * @return Fingerprints of the issues, empty if the file cannot be read when only changes are reported.
+   */
+  private static long[] computeFingerprints(Path rootPath, URI fileUri, FindingStore issues, boolean changesOnly) {
+    try {
+      return Baseline.computeFingerprints(rootPath, fileUri, issues);
+    } catch (SonarLintException e) {
+      if (!changesOnly) {
+        throw e;
+      }
+      logger.debug("Issues of {} are not reported, because the file cannot be read", fileUri, e);
+      return new long[0];
+    }
+  }
+
+  /**
+   * Counts occurrences of given fingerprints.
+   *
+   * @param fingerprints fingerprints, null if there are none
+   * @return Number of occurrences indexed by fingerprint.
+   */
+  private static LongIntHashMap countFingerprints(long[] fingerprints) {
+    var result = new LongIntHashMap(fingerprints == null ? 0 : fingerprints.length);
+    if (fingerprints != null) {
+      for (var fingerprint : fingerprints) {
+        result.increment(fingerprint);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks, whether a finding matches one of known findings (e.g. in the baseline), which have not been matched yet, and marks it as matched.
+   *
+   * @param fingerprint fingerprint of the finding
+   * @param knownCount number of known findings with given fingerprint
+   * @param matchedFingerprints number of findings of the current file already matched indexed by fingerprint
+   * @return True, if the finding matches a known finding.
+   */
+  private static boolean isMatched(long fingerprint, int knownCount, LongIntHashMap matchedFingerprints) {
+    if (matchedFingerprints.get(fingerprint) >= knownCount) {
+      return false;
+    }
+    matchedFingerprints.increment(fingerprint);
+    return true;
+  }
+
+  /**
+   * Outputs summary of files skipped because of their size or content as a warning.
+   *
+   * @param skippedFiles skipped files indexed by skip reason
+   */
+  public void reportSkippedFiles(Map<SkipReason, List<Path>> skippedFiles) {
+    var total = skippedFiles.values().stream().mapToInt(List::size).sum();
+    if (total > 0) {
+      var summary = skippedFiles.entrySet().stream()
+          .map(entry -> entry.getValue().size() + " " + entry.getKey().getDescription())
+          .collect(Collectors.joining(", "));
+      reportWarning("Skipped " + total + " files (" + summary + ")");
+    }
+  }
+
+  /**
+   * Outputs build problem, which makes the build fail.
+   *
+   * @param description problem description
+   */
+  public void reportBuildProblem(String description) {
+    System.out.printf("##teamcity[buildProblem description='%s']%n", escapeString(description));
+  }
+
+  /**
+   * Outputs warning message.
+   *
+   * @param message message to output
+   */
+  public void reportWarning(String message) {
+    System.out.printf("##teamcity[message text='%s' status='WARNING']%n", escapeString(message));
+  }
+
+  private void reportIssue(Finding issue, Path relativeFilePath) {
     var ruleKey = issue.getRuleKey();
     if (!ruleSet.contains(ruleKey)) {
       // Each rule must be output exactly once
       ruleSet.add(ruleKey);
-      @SuppressWarnings({"java:S3655", "OptionalGetWithoutIsPresent"}) // We know that the rule is present, because the issue refers to it
-      var rule = rulesRepository.getRule(configuration.host(), ruleKey).get();
+      var rule = ruleCache.getRule(ruleKey, definition -> new CachedRule(
+          escapeString(ruleKey + " - " + definition.getName()),
+          // Description is mandatory, so use name as description, if name is not available
+          escapeString(StringUtils.hasText(definition.getHtmlDescription()) ? definition.getHtmlDescription() : definition.getName()),
+          definition.getType().name()
+      ));
       System.out.printf("##teamcity[inspectionType id='%s' name='%s' description='%s' category='%s']%n",
           ruleKey,
-          escapeString(ruleKey + " - " + rule.getName()),
-          // Description is mandatory, so use name as description, if name is not available
-          escapeString(StringUtils.hasText(rule.getHtmlDescription()) ? rule.getHtmlDescription() : rule.getName()),
-          rule.getType().name()
+          rule.name(),
+          rule.description(),
+          rule.type()
       );
     }
     // Output the issue itself
-    var severityMode = issue.getSeverityMode();
     System.out.printf("##teamcity[inspection typeId='%s' message='%s' file='%s' line='%d' severity='%s']%n",
         ruleKey,
         escapeString(issue.getPrimaryMessage()),
         relativeFilePath,
-        issue.getTextRange() == null ? 0 : issue.getTextRange().getStartLine(),
-        getSeverity(severityMode.isLeft() ? severityMode.getLeft().getSeverity() : null, severityMode.isRight() ? severityMode.getRight().getImpacts() : null)
+        issue.hasTextRange() ? issue.getStartLine() : 0,
+        getSeverity(issue)
     );
   }
 }
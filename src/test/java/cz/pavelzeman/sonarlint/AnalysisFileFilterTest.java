@@ -0,0 +1,73 @@
+package cz.pavelzeman.sonarlint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import cz.pavelzeman.sonarlint.AnalysisFileFilter.SkipReason;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnalysisFileFilterTest {
+
+  @TempDir
+  Path directory;
+
+  private final AnalysisFileFilter filter = new AnalysisFileFilter(createConfiguration());
+
+  private static Configuration createConfiguration() {
+    var properties = new Properties();
+    properties.setProperty("sonar.host.url", "http://localhost");
+    properties.setProperty("sonar.token", "token");
+    properties.setProperty("sonar.projectKey", "project");
+    return Configuration.create(properties);
+  }
+
+  private Path write(String fileName, byte[] content) throws IOException {
+    return Files.write(directory.resolve(fileName), content);
+  }
+
+  private Path write(String fileName, String content) throws IOException {
+    return write(fileName, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void ignoresContentOfFilesWhichAreNotAnalyzed() throws IOException {
+    // Binary content without line breaks
+    var content = new byte[10_000];
+    for (var i = 0; i < content.length; i++) {
+      content[i] = (byte) (i * 31 % 251 + 1);
+    }
+    assertNull(filter.check(write("image.png", content)));
+    assertNull(filter.check(write("notes.txt", "@generated\n")));
+  }
+
+  @Test
+  void detectsMinifiedFiles() throws IOException {
+    assertEquals(SkipReason.MINIFIED, filter.check(write("library.min.js", "var a = 1;\n")));
+    assertEquals(SkipReason.MINIFIED, filter.check(write("library.js", "var a = 1;".repeat(1000))));
+    assertNull(filter.check(write("library.js", "var a = 1;\n".repeat(1000))));
+  }
+
+  @Test
+  void detectsMarkersInHeaderComment() throws IOException {
+    assertEquals(SkipReason.GENERATED, filter.check(write("Api.java", "// Code generated by protoc-gen-java. DO NOT EDIT.\npackage api;\n")));
+    assertEquals(SkipReason.GENERATED, filter.check(write("Api.cs", "\uFEFF/*\n * Copyright\n * <auto-generated>\n */\nnamespace Api;\n")));
+    assertEquals(SkipReason.GENERATED, filter.check(write("api.xml", "<?xml version=\"1.0\"?>\n<!--\n  @generated\n-->\n<api/>\n")));
+  }
+
+  @Test
+  void ignoresMarkersOutsideHeaderComment() throws IOException {
+    assertNull(filter.check(write("Api.java", "// Do not edit this class without updating the docs\nclass Api {\n}\n")));
+    assertNull(filter.check(write("Parser.java", "package parser;\n\n/** Parser of files with @generated marker. */\nclass Parser {\n}\n")));
+  }
+
+  @Test
+  void skipsUnreadableFiles() {
+    assertEquals(SkipReason.UNREADABLE, filter.check(directory.resolve("Missing.java")));
+  }
+}
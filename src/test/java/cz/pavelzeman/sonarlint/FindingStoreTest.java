@@ -0,0 +1,135 @@
+package cz.pavelzeman.sonarlint;
+
+import static cz.pavelzeman.sonarlint.TestFindings.issue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+
+class FindingStoreTest {
+
+  private static URI file(int index) {
+    return URI.create("file:///project/File" + index + ".java");
+  }
+
+  /**
+   * Gets findings of given file in a comparable form.
+   */
+  private static List<String> getFindings(FindingStore store, URI fileUri) {
+    var result = new ArrayList<String>();
+    store.forEachFinding(fileUri, finding -> result.add(finding.getRuleKey() + "|" + finding.getPrimaryMessage() + "|"
+        + (finding.hasTextRange() ? finding.getStartLine() : 0) + "|" + finding.getSeverity()));
+    return result;
+  }
+
+  private static List<String> toStrings(List<RaisedIssueDto> issues) {
+    return issues.stream().map(issue -> issue.getRuleKey() + "|" + issue.getPrimaryMessage() + "|"
+        + (issue.getTextRange() == null ? 0 : issue.getTextRange().getStartLine()) + "|" + Severities.getSeverity(issue)).toList();
+  }
+
+  @Test
+  void addsAndRemovesFindings() {
+    var store = new FindingStore();
+    store.add(file(1), List.of(issue("java:S1", "First", 1, IssueSeverity.MAJOR), issue("java:S2", "Second", 0, IssueSeverity.BLOCKER)));
+    store.add(file(2), List.of(issue("java:S1", "First", 3, IssueSeverity.MINOR)));
+    store.add(file(1), List.of(issue("java:S3", "Third", 5, IssueSeverity.INFO)));
+    store.add(file(3), List.of());
+
+    assertEquals(4, store.size());
+    assertEquals(List.of(file(1), file(2)), store.getFiles());
+    assertEquals(List.of("java:S1|First|1|MAJOR", "java:S2|Second|0|BLOCKER", "java:S3|Third|5|INFO"), getFindings(store, file(1)));
+    assertEquals(1, store.getFindingCount(file(2)));
+    assertEquals(0, store.getFindingCount(file(3)));
+
+    store.remove(file(1));
+    assertEquals(1, store.size());
+    assertEquals(List.of(file(2)), store.getFiles());
+    assertTrue(getFindings(store, file(1)).isEmpty());
+    assertEquals(List.of("java:S1|First|3|MINOR"), getFindings(store, file(2)));
+  }
+
+  @Test
+  void releasesValuesOfRemovedFindings() {
+    var store = new FindingStore();
+    store.add(file(0), List.of(issue("java:S0", "Kept", 1, IssueSeverity.MAJOR)));
+    for (var round = 0; round < 100; round++) {
+      var fileUri = file(round + 1);
+      var issues = new ArrayList<RaisedIssueDto>();
+      for (var i = 0; i < 10; i++) {
+        issues.add(issue("java:S" + round + "_" + i, "Message " + round + " " + i, i + 1, IssueSeverity.MINOR));
+      }
+      store.add(fileUri, issues);
+      store.remove(fileUri);
+    }
+    // Compaction is triggered only after enough findings are removed, so force it by adding and removing a large file
+    var largeIssues = new ArrayList<RaisedIssueDto>();
+    for (var i = 0; i < 300; i++) {
+      largeIssues.add(issue("java:S999", "Large " + i, i + 1, IssueSeverity.MINOR));
+    }
+    store.add(file(999), largeIssues);
+    store.remove(file(999));
+
+    assertEquals(1, store.size());
+    assertEquals(List.of(file(0)), store.getFiles());
+    assertEquals(List.of("java:S0|Kept|1|MAJOR"), getFindings(store, file(0)));
+    // Just the rule key, message and file of the remaining finding
+    assertEquals(3, store.getInternedValueCount());
+
+    // Released file IDs are reused without any leftovers of the removed findings
+    store.add(file(1), List.of(issue("java:S1", "New", 2, IssueSeverity.CRITICAL)));
+    assertEquals(List.of(file(0), file(1)), store.getFiles());
+    assertEquals(1, store.getFindingCount(file(1)));
+    assertEquals(List.of("java:S1|New|2|CRITICAL"), getFindings(store, file(1)));
+  }
+
+  @Test
+  void matchesMapAfterRandomOperations() {
+    var random = new Random(0);
+    var store = new FindingStore();
+    var expected = new LinkedHashMap<URI, List<RaisedIssueDto>>();
+    for (var operation = 0; operation < 5000; operation++) {
+      var fileUri = file(random.nextInt(50));
+      if (random.nextInt(3) == 0) {
+        store.remove(fileUri);
+        expected.remove(fileUri);
+      } else {
+        var issues = new ArrayList<RaisedIssueDto>();
+        var count = random.nextInt(20);
+        for (var i = 0; i < count; i++) {
+          issues.add(issue("java:S" + random.nextInt(30), "Message " + random.nextInt(100), random.nextInt(500),
+              IssueSeverity.values()[random.nextInt(IssueSeverity.values().length)]));
+        }
+        store.add(fileUri, issues);
+        expected.computeIfAbsent(fileUri, k -> new ArrayList<>()).addAll(issues);
+      }
+      if (operation % 100 == 0) {
+        assertMatches(expected, store);
+      }
+    }
+    assertMatches(expected, store);
+  }
+
+  private static void assertMatches(Map<URI, List<RaisedIssueDto>> expected, FindingStore store) {
+    var expectedSize = 0;
+    var actualFiles = new HashMap<URI, Boolean>();
+    store.getFiles().forEach(fileUri -> actualFiles.put(fileUri, true));
+    for (var entry : expected.entrySet()) {
+      expectedSize += entry.getValue().size();
+      assertEquals(toStrings(entry.getValue()), getFindings(store, entry.getKey()));
+      assertEquals(!entry.getValue().isEmpty(), actualFiles.containsKey(entry.getKey()));
+    }
+    for (var fileUri : actualFiles.keySet()) {
+      assertTrue(expected.containsKey(fileUri));
+    }
+    assertEquals(expectedSize, store.size());
+  }
+}
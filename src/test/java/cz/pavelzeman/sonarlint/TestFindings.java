@@ -0,0 +1,34 @@
+package cz.pavelzeman.sonarlint;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.Either;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.RuleType;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.StandardModeDetails;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.TextRangeDto;
+
+/**
+ * Factory of findings used by tests.
+ */
+public class TestFindings {
+
+  private TestFindings() {
+  }
+
+  /**
+   * Creates an issue on a single line.
+   *
+   * @param ruleKey rule key
+   * @param message primary message
+   * @param line line of the issue, 0 for an issue without text range
+   * @param severity issue severity
+   * @return Issue.
+   */
+  public static RaisedIssueDto issue(String ruleKey, String message, int line, IssueSeverity severity) {
+    return new RaisedIssueDto(UUID.randomUUID(), null, ruleKey, message, Either.forLeft(new StandardModeDetails(severity, RuleType.CODE_SMELL)), Instant.now(),
+        false, false, line == 0 ? null : new TextRangeDto(line, 0, line, 1000), List.of(), List.of(), null, false, null);
+  }
+}
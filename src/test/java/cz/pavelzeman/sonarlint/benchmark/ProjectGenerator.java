@@ -0,0 +1,126 @@
+package cz.pavelzeman.sonarlint.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic multi-language projects used to measure CLI performance. Generated files contain constructs typically reported
+ * by the analyzers (unused variables, empty blocks, TODO comments etc.), so that the analysis produces findings. The output is deterministic for a given seed.
+ */
+@SuppressWarnings("java:S106") // Usage is printed to standard error
+public class ProjectGenerator {
+
+  /** Supported languages with their source directories, file extensions and generators of a single code unit. */
+  private static final List<Language> LANGUAGES = List.of(
+      new Language("java", "java", (name, i) -> """
+            public void method%2$d(int value) {
+              int unused%2$d = value * 2;
+              // TODO implement %1$s
+              if (value == %2$d) {
+              }
+              try {
+                System.out.println("value " + value);
+              } catch (Exception e) {
+              }
+            }
+          """.formatted(name, i), name -> "public class " + name + " {\n", name -> "}\n"),
+      new Language("js", "js", (name, i) -> """
+          function %1$s_%2$d(value) {
+            var unused = value * 2;
+            // TODO implement
+            if (value == %2$d) {
+            }
+            eval("value + " + value);
+            return value;
+          }
+          """.formatted(name, i), name -> "", name -> ""),
+      new Language("py", "python", (name, i) -> """
+          def %1$s_%2$d(value):
+              unused = value * 2
+              # TODO implement
+              if value == %2$d:
+                  pass
+              try:
+                  print(value)
+              except:
+                  pass
+              return value
+
+          """.formatted(name.toLowerCase(), i), name -> "", name -> ""),
+      new Language("xml", "xml", (name, i) -> """
+            <item id="%1$s-%2$d">
+              <!-- TODO describe -->
+              <value>%2$d</value>
+            </item>
+          """.formatted(name, i), name -> "<?xml version=\"1.0\"?>\n<items>\n", name -> "</items>\n")
+  );
+
+  private ProjectGenerator() {
+  }
+
+  /**
+   * Generates project into given directory. Source files are generated to {@code src/<language>}, test files to {@code test/<language>}.
+   * A {@code sonar-project.properties} file with source and test directories is generated as well, other properties have to be provided by the caller.
+   *
+   * @param directory output directory
+   * @param files total number of files (distributed evenly among languages, 20 % of them are test files)
+   * @param unitsPerFile number of code units (methods, functions or elements) in each file
+   * @param seed random seed
+   */
+  public static void generate(Path directory, int files, int unitsPerFile, long seed) throws IOException {
+    var random = new Random(seed);
+    for (var i = 0; i < files; i++) {
+      var language = LANGUAGES.get(i % LANGUAGES.size());
+      var test = i % 5 == 4;
+      // Spread files into multiple packages, so that the directory structure resembles a real project
+      var packageDirectory = directory.resolve(test ? "test" : "src").resolve(language.directory()).resolve("package" + (i / 50));
+      Files.createDirectories(packageDirectory);
+      var name = (test ? "Generated" + i + "Test" : "Generated" + i);
+      var content = new StringBuilder(language.header().generate(name));
+      // Vary file sizes a bit
+      var units = unitsPerFile / 2 + random.nextInt(unitsPerFile + 1);
+      for (var unit = 0; unit < units; unit++) {
+        content.append(language.unit().generate(name, unit));
+      }
+      content.append(language.footer().generate(name));
+      Files.writeString(packageDirectory.resolve(name + "." + language.extension()), content);
+    }
+    Files.writeString(directory.resolve("sonar-project.properties"), """
+        sonar.projectBaseDir=%s
+        sonar.sources=src
+        sonar.tests=test
+        """.formatted(directory.toAbsolutePath().toString().replace("\\", "/")));
+  }
+
+  public static void main(String... args) throws IOException {
+    if (args.length < 2 || args.length > 4) {
+      System.err.println("Usage: ProjectGenerator <output directory> <number of files> [<units per file> [<seed>]]");
+      System.exit(1);
+    }
+    generate(Path.of(args[0]), Integer.parseInt(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 20, args.length > 3 ? Long.parseLong(args[3]) : 0);
+  }
+
+  /**
+   * Generator of a part of a file.
+   */
+  @FunctionalInterface
+  private interface PartGenerator {
+
+    String generate(String name);
+  }
+
+  /**
+   * Generator of a single code unit.
+   */
+  @FunctionalInterface
+  private interface UnitGenerator {
+
+    String generate(String name, int index);
+  }
+
+  private record Language(String extension, String directory, UnitGenerator unit, PartGenerator header, PartGenerator footer) {
+  }
+}
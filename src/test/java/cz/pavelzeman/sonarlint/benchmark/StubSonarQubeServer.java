@@ -0,0 +1,261 @@
+package cz.pavelzeman.sonarlint.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cz.pavelzeman.sonarlint.SonarLintException;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.sonarlint.core.serverapi.proto.sonarqube.ws.Common.BranchType;
+import org.sonarsource.sonarlint.core.serverapi.proto.sonarqube.ws.Hotspots.HotspotPullQueryTimestamp;
+import org.sonarsource.sonarlint.core.serverapi.proto.sonarqube.ws.Issues.IssuesPullQueryTimestamp;
+import org.sonarsource.sonarlint.core.serverapi.proto.sonarqube.ws.ProjectBranches.Branch;
+import org.sonarsource.sonarlint.core.serverapi.proto.sonarqube.ws.ProjectBranches.ListWsResponse;
+
+/**
+ * In-process HTTP server, which replays responses of a SonarQube server from recorded fixtures, so that the CLI can be run without any real server.
+ * <p>
+ * Each fixture consists of two files named by the hash of the request (method, path and query): {@code <hash>.body} with the response body
+ * and {@code <hash>.properties} with the status code, content type and the original request (for information only).
+ * <p>
+ * Fixtures are recorded by running the server in record mode, in which all requests are forwarded to a real server and the responses are stored.
+ * To record fixtures, run the CLI once against the server started as follows:
+ * <pre>
+ * java ... cz.pavelzeman.sonarlint.benchmark.StubSonarQubeServer &lt;fixture directory&gt; &lt;port&gt; &lt;upstream server URL&gt;
+ * </pre>
+ * Without the upstream server URL, the server only replays the fixtures. Requests without a fixture are answered as by an empty server (no analyzers,
+ * quality profiles or findings), so that synchronization succeeds even without any fixtures. Such a run measures startup, synchronization and reporting
+ * overhead of the CLI. Analyzers and quality profiles are only available from recorded fixtures. Other requests without a fixture are answered with 404.
+ * <p>
+ * Query parameters, which change between runs (e.g. {@code changedSince} of findings pulls), are ignored when fixtures are looked up.
+ */
+@SuppressWarnings("java:S106") // Usage is printed to standard error
+public class StubSonarQubeServer implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(StubSonarQubeServer.class);
+
+  /** Query parameters removed from requests before computing fixture names. */
+  private static final Set<String> VOLATILE_PARAMETERS = Set.of("changedSince");
+
+  private static final String JSON = "application/json";
+
+  private static final String PROTOBUF = "application/x-protobuf";
+
+  private final HttpServer server;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  private final Path fixtureDirectory;
+
+  /** Real server used in record mode, null in replay mode. */
+  private final URI upstream;
+
+  private final HttpClient httpClient;
+
+  /**
+   * Creates and starts the server.
+   *
+   * @param fixtureDirectory directory with fixtures
+   * @param port port to listen on (0 for a random free port)
+   * @param upstream real server to forward requests to and record responses from, null to replay fixtures only
+   */
+  public StubSonarQubeServer(Path fixtureDirectory, int port, URI upstream) throws IOException {
+    this.fixtureDirectory = fixtureDirectory;
+    this.upstream = upstream;
+    this.httpClient = upstream == null ? null : HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  /**
+   * Gets URL of the server to be used as {@code sonar.host.url}.
+   *
+   * @return Server URL.
+   */
+  public String getUrl() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      var request = exchange.getRequestMethod() + " " + exchange.getRequestURI();
+      var fixtureName = getFixtureName(normalize(exchange.getRequestMethod(), exchange.getRequestURI()));
+      var bodyFile = fixtureDirectory.resolve(fixtureName + ".body");
+      var metadataFile = fixtureDirectory.resolve(fixtureName + ".properties");
+      if (upstream != null) {
+        record(exchange, request, bodyFile, metadataFile);
+      }
+      if (!Files.exists(metadataFile)) {
+        var response = getSyntheticResponse(exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+        if (response == null) {
+          logger.warn("No fixture for request {}", request);
+          exchange.sendResponseHeaders(404, -1);
+        } else {
+          logger.debug("No fixture for request {}, using synthetic response", request);
+          sendResponse(exchange, 200, response.contentType(), response.body());
+        }
+        return;
+      }
+      var metadata = new Properties();
+      try (var inputStream = Files.newInputStream(metadataFile)) {
+        metadata.load(inputStream);
+      }
+      sendResponse(exchange, Integer.parseInt(metadata.getProperty("status")), metadata.getProperty("contentType"), Files.readAllBytes(bodyFile));
+    }
+  }
+
+  private static void sendResponse(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+    if (contentType != null) {
+      exchange.getResponseHeaders().add("Content-Type", contentType);
+    }
+    // Length -1 means no body at all, which is valid only for some status codes, so an empty body of other responses is sent using chunked encoding (length 0)
+    var noBody = status == 204 || status == 304 || exchange.getRequestMethod().equals("HEAD");
+    exchange.sendResponseHeaders(status, noBody ? -1 : body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  /**
+   * Gets response of an empty server for requests needed by synchronization.
+   *
+   * @param method request method
+   * @param path request path
+   * @return Response or null, if there is no synthetic response for the request.
+   */
+  private static SyntheticResponse getSyntheticResponse(String method, String path) throws IOException {
+    if (!method.equals("GET")) {
+      return null;
+    }
+    return switch (path) {
+      case "/api/system/status" -> new SyntheticResponse(JSON, "{\"id\":\"stub\",\"version\":\"10.7.0.96327\",\"status\":\"UP\"}");
+      case "/api/users/current" -> new SyntheticResponse(JSON, "{\"id\":\"stub\",\"login\":\"stub\",\"isLoggedIn\":true}");
+      case "/api/features/list" -> new SyntheticResponse(JSON, "[]");
+      case "/api/plugins/installed" -> new SyntheticResponse(JSON, "{\"plugins\":[]}");
+      case "/api/project_branches/list.protobuf" -> new SyntheticResponse(PROTOBUF, ListWsResponse.newBuilder()
+          .addBranches(Branch.newBuilder().setName("main").setIsMain(true).setType(BranchType.BRANCH))
+          .build().toByteArray());
+      case "/api/issues/pull", "/api/issues/pull_taint" -> {
+        // Pulled findings are a stream of messages starting with the query timestamp
+        var outputStream = new ByteArrayOutputStream();
+        IssuesPullQueryTimestamp.newBuilder().setQueryTimestamp(System.currentTimeMillis()).build().writeDelimitedTo(outputStream);
+        yield new SyntheticResponse(PROTOBUF, outputStream.toByteArray());
+      }
+      case "/api/hotspots/pull" -> {
+        var outputStream = new ByteArrayOutputStream();
+        HotspotPullQueryTimestamp.newBuilder().setQueryTimestamp(System.currentTimeMillis()).build().writeDelimitedTo(outputStream);
+        yield new SyntheticResponse(PROTOBUF, outputStream.toByteArray());
+      }
+      // Settings, quality profiles, measures, components etc., empty message has all fields unset
+      default -> path.startsWith("/api/") && path.endsWith(".protobuf") ? new SyntheticResponse(PROTOBUF, new byte[0]) : null;
+    };
+  }
+
+  /**
+   * Normalizes request by removing {@link #VOLATILE_PARAMETERS}, so that it can be used to look up fixtures.
+   *
+   * @param method request method
+   * @param uri request URI
+   * @return Request method, path and normalized query.
+   */
+  static String normalize(String method, URI uri) {
+    var query = uri.getRawQuery();
+    if (query == null) {
+      return method + " " + uri.getRawPath();
+    }
+    var normalizedQuery = Arrays.stream(query.split("&"))
+        .filter(parameter -> !VOLATILE_PARAMETERS.contains(parameter.substring(0, parameter.contains("=") ? parameter.indexOf('=') : parameter.length())))
+        .collect(Collectors.joining("&"));
+    return method + " " + uri.getRawPath() + (normalizedQuery.isEmpty() ? "" : "?" + normalizedQuery);
+  }
+
+  /**
+   * Forwards request to the upstream server and stores the response as a fixture.
+   */
+  private void record(HttpExchange exchange, String request, Path bodyFile, Path metadataFile) throws IOException {
+    var upstreamRequest = HttpRequest.newBuilder(URI.create(upstream.toString().replaceAll("/$", "") + exchange.getRequestURI()))
+        .method(exchange.getRequestMethod(), HttpRequest.BodyPublishers.ofByteArray(exchange.getRequestBody().readAllBytes()));
+    var authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    if (authorization != null) {
+      upstreamRequest.header("Authorization", authorization);
+    }
+    try {
+      var response = httpClient.send(upstreamRequest.build(), HttpResponse.BodyHandlers.ofByteArray());
+      Files.createDirectories(fixtureDirectory);
+      Files.write(bodyFile, response.body());
+      var metadata = new Properties();
+      metadata.setProperty("request", request);
+      metadata.setProperty("status", Integer.toString(response.statusCode()));
+      response.headers().firstValue("Content-Type").ifPresent(contentType -> metadata.setProperty("contentType", contentType));
+      try (var outputStream = Files.newOutputStream(metadataFile)) {
+        metadata.store(outputStream, null);
+      }
+      logger.info("Recorded {} -> {}", request, response.statusCode());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while forwarding request " + request, e);
+    }
+  }
+
+  /**
+   * Gets fixture file name (without extension) for given request.
+   *
+   * @param request request method, path and normalized query
+   * @return Fixture name.
+   */
+  private static String getFixtureName(String request) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(request.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new SonarLintException("Error when computing fixture name", e);
+    }
+  }
+
+  /**
+   * Synthetic response of an empty server.
+   *
+   * @param contentType response content type
+   * @param body response body
+   */
+  private record SyntheticResponse(String contentType, byte[] body) {
+
+    SyntheticResponse(String contentType, String body) {
+      this(contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  public static void main(String... args) throws IOException {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println("Usage: StubSonarQubeServer <fixture directory> <port> [<upstream server URL>]");
+      System.exit(1);
+    }
+    var server = new StubSonarQubeServer(Path.of(args[0]), Integer.parseInt(args[1]), args.length == 3 ? URI.create(args[2]) : null);
+    logger.info("Stub server listening on {}", server.getUrl());
+  }
+}
@@ -0,0 +1,43 @@
+package cz.pavelzeman.sonarlint.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StubSonarQubeServerTest {
+
+  @TempDir
+  Path fixtureDirectory;
+
+  @Test
+  void removesVolatileParameters() {
+    assertEquals("GET /api/issues/pull?projectKey=p&branchName=main",
+        StubSonarQubeServer.normalize("GET", URI.create("/api/issues/pull?projectKey=p&changedSince=1700000000000&branchName=main")));
+    assertEquals("GET /api/hotspots/pull", StubSonarQubeServer.normalize("GET", URI.create("/api/hotspots/pull?changedSince=1")));
+    assertEquals("GET /api/system/status", StubSonarQubeServer.normalize("GET", URI.create("/api/system/status")));
+  }
+
+  @Test
+  void answersSynchronizationRequestsWithoutFixtures() throws IOException, InterruptedException {
+    try (var server = new StubSonarQubeServer(fixtureDirectory, 0, null)) {
+      var client = HttpClient.newHttpClient();
+      assertEquals(200, get(client, server, "/api/system/status").statusCode());
+      assertEquals("{\"plugins\":[]}", new String(get(client, server, "/api/plugins/installed").body()));
+      var settings = get(client, server, "/api/settings/values.protobuf?component=p");
+      assertEquals(200, settings.statusCode());
+      assertEquals(0, settings.body().length);
+      assertEquals(404, get(client, server, "/api/unknown").statusCode());
+    }
+  }
+
+  private static HttpResponse<byte[]> get(HttpClient client, StubSonarQubeServer server, String path) throws IOException, InterruptedException {
+    return client.send(HttpRequest.newBuilder(URI.create(server.getUrl() + path)).build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+}
@@ -0,0 +1,166 @@
+package cz.pavelzeman.sonarlint.benchmark;
+
+import cz.pavelzeman.sonarlint.Main;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end throughput harness. It generates a synthetic project using {@link ProjectGenerator}, starts {@link StubSonarQubeServer} with recorded fixtures
+ * and runs full CLI cycles ({@link Main} in a separate JVM, exactly as in production). For each cycle, it reports wall time, peak RSS and findings per second.
+ * It runs completely offline, but peak RSS is only available on Linux (it is read from {@code /proc}).
+ * <p>
+ * The fixtures must be recorded for the same project key, see {@link StubSonarQubeServer} for details. Without fixtures (e.g. with an empty fixture directory),
+ * the stub server answers as an empty server without analyzers, so the cycles measure just the overhead of the CLI. The harness is run from the test class path,
+ * e.g.:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/classes:target/test-classes:$(cat target/classpath.txt) cz.pavelzeman.sonarlint.benchmark.ThroughputRunner fixtures my-project 1000 5
+ * </pre>
+ * System properties starting with {@code sonar.} are passed to the CLI, e.g. {@code -Dsonar.cli.minimalBackend=false} to compare backend modes.
+ */
+@SuppressWarnings("java:S106") // Results are printed to standard output
+public class ThroughputRunner {
+
+  private static final Pattern PEAK_RSS_PATTERN = Pattern.compile("VmHWM:\\s+(\\d+) kB");
+
+  /** Interval of reading peak RSS of the running process. */
+  private static final long SAMPLING_INTERVAL_MILLIS = 20;
+
+  private ThroughputRunner() {
+  }
+
+  /**
+   * Runs a single CLI cycle.
+   *
+   * @param propertiesFile properties file passed to the CLI
+   * @param sonarLintHome home directory of the CLI process (the CLI stores its cache to {@code .sonarlint-cli} in this directory)
+   * @param log file to store CLI log output to
+   * @return Cycle result.
+   */
+  private static Result runCycle(Path propertiesFile, Path sonarLintHome, Path log) throws IOException, InterruptedException {
+    var javaBinary = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    var command = new ArrayList<String>(List.of(javaBinary, "-Duser.home=" + sonarLintHome));
+    // Configuration properties given to the harness are passed to the CLI, so that configurations can be compared (e.g. -Dsonar.cli.minimalBackend=false)
+    System.getProperties().stringPropertyNames().stream().filter(name -> name.startsWith("sonar.")).sorted()
+        .forEach(name -> command.add("-D" + name + "=" + System.getProperty(name)));
+    command.addAll(List.of("-cp", System.getProperty("java.class.path"), Main.class.getName(), propertiesFile.toString()));
+    var processBuilder = new ProcessBuilder(command);
+    // Configuration must come only from the properties file and properties passed above
+    processBuilder.environment().keySet().removeIf(key -> key.startsWith("SONAR_"));
+    processBuilder.redirectError(log.toFile());
+
+    var start = System.nanoTime();
+    var process = processBuilder.start();
+    var findings = new AtomicLong();
+    var outputReader = new Thread(() -> {
+      try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.startsWith("##teamcity[inspection ")) {
+            findings.incrementAndGet();
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Error when reading CLI output", e);
+      }
+    });
+    outputReader.start();
+
+    var peakRssKb = -1L;
+    var statusFile = Path.of("/proc", Long.toString(process.pid()), "status");
+    while (process.isAlive()) {
+      peakRssKb = Math.max(peakRssKb, readPeakRss(statusFile));
+      Thread.sleep(SAMPLING_INTERVAL_MILLIS);
+    }
+    var wallTimeNanos = System.nanoTime() - start;
+    outputReader.join();
+    return new Result(process.exitValue(), wallTimeNanos / 1_000_000, peakRssKb, findings.get());
+  }
+
+  /**
+   * Reads peak RSS of a process.
+   *
+   * @param statusFile status file of the process in /proc
+   * @return Peak RSS in kB or -1, if it is not available (not Linux or process has already finished).
+   */
+  private static long readPeakRss(Path statusFile) {
+    try {
+      var matcher = PEAK_RSS_PATTERN.matcher(Files.readString(statusFile));
+      return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  public static void main(String... args) throws IOException, InterruptedException {
+    if (args.length < 3 || args.length > 5) {
+      System.err.println("Usage: ThroughputRunner <fixture directory> <project key> <number of files> [<cycles> [--cold]]");
+      System.exit(1);
+    }
+    var fixtureDirectory = Path.of(args[0]);
+    var projectKey = args[1];
+    var files = Integer.parseInt(args[2]);
+    var cycles = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+    // In cold mode, each cycle starts with empty cache, so it includes downloading of analyzers
+    var cold = args.length > 4 && args[4].equals("--cold");
+
+    var workDirectory = Files.createTempDirectory("sonarlint-cli-benchmark");
+    var projectDirectory = workDirectory.resolve("project");
+    ProjectGenerator.generate(projectDirectory, files, 20, 0);
+
+    var results = new ArrayList<Result>();
+    try (var server = new StubSonarQubeServer(fixtureDirectory, 0, null)) {
+      var propertiesFile = projectDirectory.resolve("sonar-project.properties");
+      Files.writeString(propertiesFile, """
+          sonar.host.url=%s
+          sonar.token=benchmark
+          sonar.projectKey=%s
+          """.formatted(server.getUrl(), projectKey), StandardOpenOption.APPEND);
+      for (var cycle = 0; cycle < cycles; cycle++) {
+        var sonarLintHome = workDirectory.resolve(cold ? "home" + cycle : "home");
+        var result = runCycle(propertiesFile, sonarLintHome, workDirectory.resolve("cycle" + cycle + ".log"));
+        System.out.printf("Cycle %d: %s%n", cycle + 1, result);
+        results.add(result);
+      }
+    }
+    printSummary(results);
+    System.out.printf("Work directory with generated project and logs: %s%n", workDirectory);
+  }
+
+  private static void printSummary(List<Result> results) {
+    System.out.printf("Average: wall time %.0f ms, peak RSS %.0f MB, %.1f findings/s%n",
+        results.stream().mapToLong(Result::wallTimeMillis).average().orElse(0),
+        results.stream().mapToLong(Result::peakRssKb).average().orElse(0) / 1024,
+        results.stream().mapToDouble(Result::findingsPerSecond).average().orElse(0));
+  }
+
+  /**
+   * Result of a single CLI cycle.
+   *
+   * @param exitCode exit code of the CLI
+   * @param wallTimeMillis wall time in milliseconds
+   * @param peakRssKb peak resident set size in kB, -1 if not available
+   * @param findings number of reported findings
+   */
+  private record Result(int exitCode, long wallTimeMillis, long peakRssKb, long findings) {
+
+    double findingsPerSecond() {
+      return wallTimeMillis == 0 ? 0 : findings * 1000.0 / wallTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+      return "exit code %d, wall time %d ms, peak RSS %d MB, %d findings, %.1f findings/s".formatted(exitCode, wallTimeMillis, peakRssKb / 1024, findings,
+          findingsPerSecond());
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package cz.pavelzeman.sonarlint.reporter;
+
+import static cz.pavelzeman.sonarlint.TestFindings.issue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import cz.pavelzeman.sonarlint.FindingStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+
+class BaselineTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void keepsNumberOfIdenticalFindings() {
+    var fingerprints = new LongIntHashMap(0);
+    fingerprints.increment(1);
+    fingerprints.increment(1);
+    fingerprints.increment(0);
+    fingerprints.increment(2);
+    var file = directory.resolve("baseline.bin");
+    new Baseline(fingerprints).write(file);
+
+    var baseline = Baseline.read(file);
+    assertEquals(2, baseline.getCount(1));
+    assertEquals(1, baseline.getCount(0));
+    assertEquals(1, baseline.getCount(2));
+    assertEquals(0, baseline.getCount(3));
+  }
+
+  /**
+   * Writes file with given content and computes fingerprints of given findings in it.
+   */
+  private long[] computeFingerprints(String content, RaisedIssueDto... issues) throws IOException {
+    var file = Files.writeString(directory.resolve("a.js"), content);
+    var findings = new FindingStore();
+    findings.add(file.toUri(), List.of(issues));
+    return Baseline.computeFingerprints(directory, file.toUri(), findings);
+  }
+
+  @Test
+  void matchesMovedCode() throws IOException {
+    var original = computeFingerprints("first\nfoo(bar);\n", issue("js:S1", "Message", 2, IssueSeverity.MAJOR));
+    var moved = computeFingerprints("added\nfirst\nsecond\nfoo(bar);\n", issue("js:S1", "Changed message", 4, IssueSeverity.MINOR));
+    assertEquals(original[0], moved[0]);
+  }
+
+  @Test
+  void ignoresWhitespace() throws IOException {
+    var original = computeFingerprints("foo(bar);\n", issue("js:S1", "Message", 1, IssueSeverity.MAJOR));
+    var reformatted = computeFingerprints("\t  foo( bar ) ;\r\n", issue("js:S1", "Message", 1, IssueSeverity.MAJOR));
+    assertEquals(original[0], reformatted[0]);
+  }
+
+  @Test
+  void distinguishesCodeAndRules() throws IOException {
+    var fingerprints = computeFingerprints("foo(bar);\nfoo(baz);\n",
+        issue("js:S1", "Message", 1, IssueSeverity.MAJOR),
+        issue("js:S1", "Message", 2, IssueSeverity.MAJOR),
+        issue("js:S2", "Message", 1, IssueSeverity.MAJOR));
+    assertNotEquals(fingerprints[0], fingerprints[1]);
+    assertNotEquals(fingerprints[0], fingerprints[2]);
+  }
+
+  @Test
+  void usesMessageOfFileLevelFindings() throws IOException {
+    var fingerprints = computeFingerprints("foo(bar);\n",
+        issue("js:S1", "First", 0, IssueSeverity.MAJOR),
+        issue("js:S1", "Second", 0, IssueSeverity.MAJOR));
+    var changedFile = computeFingerprints("foo(baz);\n", issue("js:S1", "First", 0, IssueSeverity.MAJOR));
+    assertNotEquals(fingerprints[0], fingerprints[1]);
+    assertEquals(fingerprints[0], changedFile[0]);
+  }
+}
@@ -0,0 +1,49 @@
+package cz.pavelzeman.sonarlint.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LongIntHashMapTest {
+
+  @Test
+  void countsKeys() {
+    var map = new LongIntHashMap(0);
+    assertEquals(1, map.increment(42));
+    assertEquals(2, map.increment(42));
+    assertEquals(1, map.increment(-42));
+    assertEquals(2, map.get(42));
+    assertEquals(1, map.get(-42));
+    assertEquals(0, map.get(43));
+    assertEquals(2, map.size());
+  }
+
+  @Test
+  void countsEmptyKey() {
+    // Zero is used to mark empty slots internally
+    var map = new LongIntHashMap(0);
+    assertEquals(0, map.get(0));
+    assertEquals(1, map.increment(0));
+    assertEquals(2, map.increment(0));
+    assertEquals(2, map.get(0));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  void matchesHashMapAfterResizing() {
+    var random = new Random(0);
+    var map = new LongIntHashMap(0);
+    var expected = new HashMap<Long, Integer>();
+    for (var i = 0; i < 100_000; i++) {
+      // Small range of keys, so that many keys are incremented multiple times, high bits make sure that hash mixing is needed
+      var key = (random.nextInt(20_000) - 10_000) * 0x1_0000_0000L;
+      assertEquals((int) expected.merge(key, 1, Integer::sum), map.increment(key));
+    }
+    assertEquals(expected.size(), map.size());
+    var actual = new HashMap<Long, Integer>();
+    map.forEach(actual::put);
+    assertEquals(expected, actual);
+  }
+}
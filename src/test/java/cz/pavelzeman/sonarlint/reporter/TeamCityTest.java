@@ -0,0 +1,139 @@
+package cz.pavelzeman.sonarlint.reporter;
+
+import static cz.pavelzeman.sonarlint.TestFindings.issue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cz.pavelzeman.sonarlint.Configuration;
+import cz.pavelzeman.sonarlint.FindingStore;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.sonarlint.core.rpc.protocol.common.IssueSeverity;
+
+class TeamCityTest {
+
+  @TempDir
+  Path directory;
+
+  private TeamCity createReporter() throws IOException {
+    return createReporter(null, true);
+  }
+
+  private TeamCity createReporter(Baseline baseline, boolean trackChanges) throws IOException {
+    var rules = new Properties();
+    rules.setProperty("js:S1.name", "js:S1 - Rule");
+    rules.setProperty("js:S1.description", "Description");
+    rules.setProperty("js:S1.type", "CODE_SMELL");
+    var cacheDirectory = directory.resolve("rules");
+    var connectionCacheDirectory = Files.createDirectories(RuleCache.getConnectionCacheDirectory(cacheDirectory, "connection"));
+    try (var outputStream = Files.newOutputStream(connectionCacheDirectory.resolve("test.properties"))) {
+      rules.store(outputStream, null);
+    }
+    var properties = new Properties();
+    properties.setProperty("sonar.host.url", "http://localhost");
+    properties.setProperty("sonar.token", "token");
+    properties.setProperty("sonar.projectKey", "project");
+    properties.setProperty("sonar.projectBaseDir", directory.toString());
+    var ruleCache = new RuleCache(cacheDirectory, "test", () -> {
+      throw new AssertionError("Rules repository must not be used");
+    }, "connection");
+    return new TeamCity(ruleCache, Configuration.create(properties), baseline, trackChanges);
+  }
+
+  private static String capture(Runnable action) {
+    var originalOut = System.out;
+    var output = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+    try {
+      action.run();
+    } finally {
+      System.setOut(originalOut);
+    }
+    return output.toString(StandardCharsets.UTF_8);
+  }
+
+  private static long countInspections(String output) {
+    return output.lines().filter(line -> line.startsWith("##teamcity[inspection ")).count();
+  }
+
+  @Test
+  void reportsOnlyChangedIssues() throws IOException {
+    var reporter = createReporter();
+    var file = Files.writeString(directory.resolve("a.js"), "first\nsecond\nthird\n");
+    var issues = new FindingStore();
+    issues.add(file.toUri(), List.of(issue("js:S1", "First", 1, IssueSeverity.MAJOR), issue("js:S1", "Second", 2, IssueSeverity.MAJOR)));
+    assertEquals(2, countInspections(capture(() -> reporter.reportIssues(issues))));
+
+    // The second issue is fixed, a new issue is found and the first one moves to another line
+    Files.writeString(file, "added\nfirst\nsecond fixed\nthird\n");
+    issues.remove(file.toUri());
+    issues.add(file.toUri(), List.of(issue("js:S1", "First", 2, IssueSeverity.MAJOR), issue("js:S1", "Third", 4, IssueSeverity.MAJOR)));
+    var output = capture(() -> reporter.reportIssueChanges(issues, List.of(file.toUri())));
+    assertEquals(1, countInspections(output));
+    assertTrue(output.contains("message='Third'"));
+    assertTrue(output.contains("1 issues resolved in a.js'"));
+  }
+
+  @Test
+  void reportsResolvedIssuesOfDeletedFile() throws IOException {
+    var reporter = createReporter();
+    var file = Files.writeString(directory.resolve("a.js"), "first\n");
+    var issues = new FindingStore();
+    issues.add(file.toUri(), List.of(issue("js:S1", "First", 1, IssueSeverity.MAJOR)));
+    capture(() -> reporter.reportIssues(issues));
+
+    Files.delete(file);
+    issues.remove(file.toUri());
+    var output = capture(() -> reporter.reportIssueChanges(issues, List.of(file.toUri())));
+    assertEquals(0, countInspections(output));
+    assertTrue(output.contains("1 issues resolved in a.js, no issues left"));
+  }
+
+  @Test
+  void reportsIssuesOfUnreadableFileAsResolved() throws IOException {
+    var reporter = createReporter();
+    var file = Files.writeString(directory.resolve("a.js"), "first\n");
+    var issues = new FindingStore();
+    issues.add(file.toUri(), List.of(issue("js:S1", "First", 1, IssueSeverity.MAJOR)));
+    capture(() -> reporter.reportIssues(issues));
+
+    // The file is deleted after it was analyzed, but before its issues are reported
+    issues.remove(file.toUri());
+    issues.add(file.toUri(), List.of(issue("js:S1", "Changed", 1, IssueSeverity.MAJOR)));
+    Files.delete(file);
+    var output = capture(() -> reporter.reportIssueChanges(issues, List.of(file.toUri())));
+    assertEquals(0, countInspections(output));
+    assertTrue(output.contains("1 issues resolved in a.js, no issues left"));
+  }
+
+  @Test
+  void reportsOnlyIssuesMissingInBaseline() throws IOException {
+    var file = Files.writeString(directory.resolve("a.js"), "{}\n{}\n{}\nfoo();\n");
+    var knownIssues = new FindingStore();
+    knownIssues.add(file.toUri(), List.of(issue("js:S1", "Empty block", 1, IssueSeverity.MAJOR), issue("js:S1", "Empty block", 2, IssueSeverity.MAJOR)));
+    var reporter = createReporter(Baseline.create(directory, knownIssues), false);
+
+    // The known issues move, a third identical issue and an issue on different code are added
+    Files.writeString(file, "added\n{}\n{}\n{}\nfoo();\n");
+    var issues = new FindingStore();
+    issues.add(file.toUri(), List.of(
+        issue("js:S1", "Empty block", 2, IssueSeverity.MAJOR),
+        issue("js:S1", "Empty block", 3, IssueSeverity.MAJOR),
+        issue("js:S1", "Empty block", 4, IssueSeverity.MAJOR),
+        issue("js:S1", "New", 5, IssueSeverity.MAJOR)));
+    var output = capture(() -> reporter.reportIssues(issues));
+    assertEquals(2, countInspections(output));
+    // Each issue in the baseline suppresses just one issue, the first ones are suppressed
+    assertTrue(output.contains("message='Empty block' file='a.js' line='4'"));
+    assertTrue(output.contains("message='New' file='a.js' line='5'"));
+    assertTrue(output.contains("2 issues present in the baseline were not reported"));
+  }
+}